@@ -0,0 +1,53 @@
+package com.shibbeeventures.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileAesCtr;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileCipherKey;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileProviders;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SomzFileAesCtrBenchmark {
+    @Param({ "1024", "1048576", "67108864", "1073741824" })
+    public int payloadSize;
+    @Param({ "Conscrypt", "SunJCE" })
+    public String provider;
+    private final byte[] key = "12345678901234567890123456789012".getBytes();
+    private final byte[] iv = "1234567890123456".getBytes();
+    private byte[] payload;
+    private byte[] encryptedPayload;
+
+    @Setup
+    public void setup() throws Exception {
+        SomzFileProviders.setProvider(SomzFileCipherKey.AES_CTR, provider);
+        payload = SomzFileBenchmarks.randomBytes(payloadSize);
+        encryptedPayload = SomzFileAesCtr.encrypt(payload, key, iv);
+    }
+
+    @Benchmark
+    public byte[] encrypt() throws Exception {
+        return SomzFileAesCtr.encrypt(payload, key, iv);
+    }
+
+    @Benchmark
+    public byte[] decrypt() throws Exception {
+        return SomzFileAesCtr.decrypt(encryptedPayload, key, iv);
+    }
+}
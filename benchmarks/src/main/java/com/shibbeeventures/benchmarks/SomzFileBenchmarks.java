@@ -0,0 +1,61 @@
+package com.shibbeeventures.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Runs the cipher benchmarks with the GC profiler attached, so every result
+ * carries the allocation rate next to the throughput. Any standard JMH option
+ * can be passed, e.g. {@code -p payloadSize=1024 SomzFileAesCtr}, and passing
+ * {@code -prof} replaces the default profiler.
+ *
+ * @author Senestro
+ */
+public class SomzFileBenchmarks {
+    public static final int sizeOfWriteChunk = 1048576;
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        if (!arguments.contains("-prof")) {
+            arguments.add(0, "-prof");
+            arguments.add(1, "gc");
+        }
+        org.openjdk.jmh.Main.main(arguments.toArray(new String[0]));
+    }
+
+    public static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        ThreadLocalRandom.current().nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * Writes {@code size} random bytes to a new temporary file, 1MB at a time.
+     */
+    public static Path randomFile(long size) throws IOException {
+        Path file = Files.createTempFile("somzfile-benchmark", ".bin");
+        byte[] chunk = new byte[sizeOfWriteChunk];
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (long written = 0; written < size; written += chunk.length) {
+                ThreadLocalRandom.current().nextBytes(chunk);
+                out.write(chunk, 0, (int) Math.min(chunk.length, size - written));
+            }
+        }
+        return file;
+    }
+
+    public static void deleteQuietly(Path file) {
+        try {
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException exception) {
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.shibbeeventures.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileChaCha20;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileCipherKey;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileProviders;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SomzFileChaCha20Benchmark {
+    @Param({ "1024", "1048576", "67108864", "1073741824" })
+    public int payloadSize;
+    @Param({ "Conscrypt", "BC" })
+    public String provider;
+    private final byte[] key = "12345678901234567890123456789012".getBytes();
+    private final byte[] nonce = "123456789012".getBytes();
+    private byte[] payload;
+    private byte[] encryptedPayload;
+
+    @Setup
+    public void setup() throws Exception {
+        SomzFileProviders.setProvider(SomzFileCipherKey.CHACHA20, provider);
+        payload = SomzFileBenchmarks.randomBytes(payloadSize);
+        encryptedPayload = SomzFileChaCha20.encrypt(payload, key, nonce);
+    }
+
+    @Benchmark
+    public byte[] encrypt() throws Exception {
+        return SomzFileChaCha20.encrypt(payload, key, nonce);
+    }
+
+    @Benchmark
+    public byte[] decrypt() throws Exception {
+        return SomzFileChaCha20.decrypt(encryptedPayload, key, nonce);
+    }
+}
@@ -0,0 +1,47 @@
+package com.shibbeeventures.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.shibbeeventures.shibbeeofficialmovies.SomzFileDataUtils;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SomzFileDataUtilsBenchmark {
+    @Param({ "1024", "1048576", "67108864", "1073741824" })
+    public int payloadSize;
+    private final String key = "12345678901234567890123456789012";
+    private byte[] payload;
+    private byte[] encryptedPayload;
+
+    @Setup
+    public void setup() {
+        payload = SomzFileBenchmarks.randomBytes(payloadSize);
+        encryptedPayload = SomzFileDataUtils.encrypt(payload, key);
+    }
+
+    @Benchmark
+    public byte[] encrypt() {
+        return SomzFileDataUtils.encrypt(payload, key);
+    }
+
+    @Benchmark
+    public byte[] decrypt() {
+        return SomzFileDataUtils.decrypt(encryptedPayload, key);
+    }
+}
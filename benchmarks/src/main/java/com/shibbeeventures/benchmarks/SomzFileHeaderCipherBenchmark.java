@@ -0,0 +1,132 @@
+package com.shibbeeventures.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.shibbeeventures.shibbeeofficialmovies.cipher.header.SomzFileHeaderCipher;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.header.SomzFileHeaderCipherBuffer;
+
+/**
+ * Heap input goes through {@link SomzFileHeaderCipherBuffer}, file input
+ * through {@link SomzFileHeaderCipher}. They have separate states, so only the
+ * file benchmarks run for every pipeline depth.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SomzFileHeaderCipherBenchmark {
+    private static final String key = "12345678901234567890123456789012";
+    private static final int position = 4321;
+    private static final int keysize = 15000;
+
+    @Benchmark
+    public Object encrypt(HeapInput input) throws Exception {
+        return SomzFileHeaderCipherBuffer.encrypt(input.payload, position, keysize, input.progressHandler);
+    }
+
+    @Benchmark
+    public Object decrypt(HeapInput input) throws Exception {
+        return SomzFileHeaderCipherBuffer.decrypt(input.encryptedPayload, position, keysize, input.progressHandler);
+    }
+
+    @Benchmark
+    public Object encryptFile(FileInput input) throws Exception {
+        return input.encryptFile();
+    }
+
+    @Benchmark
+    public Object decryptFile(FileInput input) throws Exception {
+        SomzFileHeaderCipher cipher = input.cipher;
+        try {
+            cipher.openFiles(input.encryptedFile.toString(), input.outputFile.toString());
+            cipher.setProcess(false);
+            cipher.readHeaderFromInput();
+            cipher.decryptInput(input.progressHandler);
+        } finally {
+            cipher.close();
+        }
+        return input.outputFile;
+    }
+
+    // ===================== PUBLIC ENUM ===================== //
+    @State(Scope.Benchmark)
+    public abstract static class Input {
+        @Param({ "1024", "1048576", "67108864", "1073741824" })
+        public int payloadSize;
+        @Param({ "false", "true" })
+        public boolean listener;
+    }
+
+    @State(Scope.Benchmark)
+    public static class HeapInput extends Input {
+        byte[] payload;
+        byte[] encryptedPayload;
+        SomzFileHeaderCipherBuffer.ProgressHandler progressHandler;
+
+        @Setup
+        public void setup(Blackhole blackhole) throws Exception {
+            progressHandler = listener ? blackhole::consume : null;
+            payload = SomzFileBenchmarks.randomBytes(payloadSize);
+            encryptedPayload = SomzFileHeaderCipherBuffer.encrypt(payload, position, keysize,
+                    (SomzFileHeaderCipherBuffer.ProgressHandler) null);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class FileInput extends Input {
+        @Param({ "0", "2", "4" })
+        public int pipelineDepth;
+        SomzFileHeaderCipher cipher;
+        Path inputFile;
+        Path encryptedFile;
+        Path outputFile;
+        SomzFileHeaderCipher.ProgressHandler progressHandler;
+
+        @Setup
+        public void setup(Blackhole blackhole) throws Exception {
+            progressHandler = listener ? blackhole::consume : null;
+            cipher = new SomzFileHeaderCipher(key);
+            cipher.setPipelineDepth(pipelineDepth);
+            inputFile = SomzFileBenchmarks.randomFile(payloadSize);
+            encryptedFile = Files.createTempFile("somzfile-benchmark", ".enc");
+            outputFile = Files.createTempFile("somzfile-benchmark", ".dec");
+            encryptFile();
+        }
+
+        @TearDown
+        public void tearDown() {
+            cipher.close();
+            SomzFileBenchmarks.deleteQuietly(inputFile);
+            SomzFileBenchmarks.deleteQuietly(encryptedFile);
+            SomzFileBenchmarks.deleteQuietly(outputFile);
+        }
+
+        Path encryptFile() throws Exception {
+            try {
+                cipher.openFiles(inputFile.toString(), encryptedFile.toString());
+                cipher.setProcess(true);
+                cipher.encryptInput(progressHandler);
+            } finally {
+                cipher.close();
+            }
+            return encryptedFile;
+        }
+    }
+}
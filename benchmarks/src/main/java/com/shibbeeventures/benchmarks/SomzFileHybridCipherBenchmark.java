@@ -0,0 +1,110 @@
+package com.shibbeeventures.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileHybridCipher;
+
+/**
+ * Heap and file input have separate states, so only the file benchmarks run
+ * for every pipeline depth.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SomzFileHybridCipherBenchmark {
+
+    @Benchmark
+    public Object encrypt(HeapInput input) {
+        return input.cipher.encrypt(input.payload, input.progressListener);
+    }
+
+    @Benchmark
+    public Object decrypt(HeapInput input) {
+        return input.cipher.decrypt(input.encryptedPayload, input.progressListener);
+    }
+
+    @Benchmark
+    public Object encryptFile(FileInput input) throws Exception {
+        input.cipher.encryptFile(input.inputFile.toString(), input.encryptedFile.toString(), input.progressListener);
+        return input.encryptedFile;
+    }
+
+    @Benchmark
+    public Object decryptFile(FileInput input) throws Exception {
+        input.cipher.decryptFile(input.encryptedFile.toString(), input.outputFile.toString(), input.progressListener);
+        return input.outputFile;
+    }
+
+    // ===================== PUBLIC ENUM ===================== //
+    @State(Scope.Benchmark)
+    public abstract static class Input {
+        @Param({ "1024", "1048576", "67108864", "1073741824" })
+        public int payloadSize;
+        @Param({ "false", "true" })
+        public boolean listener;
+        final SomzFileHybridCipher cipher = new SomzFileHybridCipher("12345678901234567890123456789012");
+        SomzFileHybridCipher.ProgressListener progressListener;
+
+        void setupListener(Blackhole blackhole) {
+            progressListener = listener ? blackhole::consume : null;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class HeapInput extends Input {
+        byte[] payload;
+        byte[] encryptedPayload;
+
+        @Setup
+        public void setup(Blackhole blackhole) {
+            setupListener(blackhole);
+            payload = SomzFileBenchmarks.randomBytes(payloadSize);
+            encryptedPayload = cipher.encrypt(payload, (SomzFileHybridCipher.ProgressListener) null);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class FileInput extends Input {
+        @Param({ "0", "2", "4" })
+        public int pipelineDepth;
+        Path inputFile;
+        Path encryptedFile;
+        Path outputFile;
+
+        @Setup
+        public void setup(Blackhole blackhole) throws Exception {
+            setupListener(blackhole);
+            cipher.setPipelineDepth(pipelineDepth);
+            inputFile = SomzFileBenchmarks.randomFile(payloadSize);
+            encryptedFile = Files.createTempFile("somzfile-benchmark", ".enc");
+            outputFile = Files.createTempFile("somzfile-benchmark", ".dec");
+            cipher.encryptFile(inputFile.toString(), encryptedFile.toString(),
+                    (SomzFileHybridCipher.ProgressListener) null);
+        }
+
+        @TearDown
+        public void tearDown() {
+            SomzFileBenchmarks.deleteQuietly(inputFile);
+            SomzFileBenchmarks.deleteQuietly(encryptedFile);
+            SomzFileBenchmarks.deleteQuietly(outputFile);
+        }
+    }
+}
@@ -1,5 +1,10 @@
 package com.shibbeeventures;
 
+import java.nio.file.Path;
+
+import com.shibbeeventures.shibbeeofficialmovies.batch.SomzFileBatch;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileProgressListener;
+
 // import com.shibbeeventures.shibbeeofficialmovies.cipher.header.SomzFileHeaderCipher;
 
 /**
@@ -10,6 +15,10 @@ public class Main {
 
     public static void main(String[] args) {
         try {
+            if (args.length > 0 && args[0].equals("batch")) {
+                batch(args);
+                return;
+            }
             // SomzFileHeaderCipher cipher = new SomzFileHeaderCipher("12345678901234567890123456789012");
             // cipher.openFiles("C:\\xserver\\Virtualhosts\\htdocs\\input.txt", "C:\\xserver\\Virtualhosts\\htdocs\\output.txt");
             // cipher.setProcess(false);
@@ -25,4 +34,44 @@ public class Main {
         }
     }
 
+    /**
+     * batch &lt;encrypt|decrypt&gt; &lt;header|hybrid|chunked&gt; &lt;inputDir&gt;
+     * &lt;outputDir&gt; &lt;key&gt; [ioThreads] [cpuThreads]
+     */
+    private static void batch(String[] args) throws Exception {
+        if (args.length < 6 || !(args[1].equals("encrypt") || args[1].equals("decrypt"))
+                || !isAlgorithm(args[2])) {
+            System.err.println(
+                    "Usage: batch <encrypt|decrypt> <header|hybrid|chunked> <inputDir> <outputDir> <key> [ioThreads] [cpuThreads]");
+            System.exit(2);
+        }
+        boolean isEncryptProcess = args[1].equals("encrypt");
+        SomzFileBatch.Algorithm algorithm = SomzFileBatch.Algorithm.valueOf(args[2].toUpperCase());
+        SomzFileBatch batch = new SomzFileBatch(args[5], algorithm, isEncryptProcess);
+        if (args.length > 6) {
+            batch.setIoThreads(Integer.parseInt(args[6]));
+        }
+        if (args.length > 7) {
+            batch.setCpuThreads(Integer.parseInt(args[7]));
+        }
+        SomzFileProgressListener progressListener = (bytesDone, bytesTotal, bytesPerSecond) -> System.out
+                .printf("%s%% %.1f MB/s%n", SomzFileProgressListener.toPercentage(bytesDone, bytesTotal),
+                        bytesPerSecond / 1048576);
+        SomzFileBatch.Result result = batch.run(Path.of(args[3]), Path.of(args[4]), progressListener);
+        System.out.printf("%d files, %d bytes in %.1f s, %.1f MB/s%n", result.getFiles(), result.getBytesProcessed(),
+                result.getElapsedNanos() / 1e9, result.getBytesPerSecond() / 1048576);
+        for (SomzFileBatch.Failure failure : result.getFailures()) {
+            System.err.println("Failed: " + failure.getFile() + ": " + failure.getException());
+        }
+    }
+
+    private static boolean isAlgorithm(String name) {
+        for (SomzFileBatch.Algorithm algorithm : SomzFileBatch.Algorithm.values()) {
+            if (algorithm.name().equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
 }
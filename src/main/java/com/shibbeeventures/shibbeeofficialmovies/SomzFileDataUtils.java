@@ -1,70 +1,202 @@
 package com.shibbeeventures.shibbeeofficialmovies;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.crypto.Cipher;
-import javax.crypto.CipherInputStream;
-import javax.crypto.CipherOutputStream;
-import javax.crypto.SecretKey;
 import javax.crypto.spec.IvParameterSpec;
-import javax.crypto.spec.SecretKeySpec;
+
+import com.shibbeeventures.annotations.NonNull;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileAesCtr;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileCipherKey;
 
 /**
+ * AES-CTR encryption of data with a random IV stored in front of the
+ * ciphertext. CTR keeps the length, so encrypted data is always exactly
+ * {@link #IV_SIZE} bytes longer than the plaintext.
  *
  * @author Senestro
  */
 public class SomzFileDataUtils {
 
-    private static final String TRANSFORMATION = "AES/CTR/NoPadding";
-    private static final String ALGORITHM = "AES";
+    public static final int IV_SIZE = 16; // 128-bit IV (CTR mode)
+    private static final int BUFFER_SIZE = 65536;
+    private static final Logger LOGGER = Logger.getLogger(SomzFileDataUtils.class.getName());
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
 
+    /**
+     * Encrypts {@code data}, returning null if an error occurs. Errors are logged.
+     */
     public static byte[] encrypt(byte[] data, String key) {
         try {
-            byte[] iv = new byte[16]; // 128-bit IV (CTR mode)
-            new SecureRandom().nextBytes(iv); // Generate a random IV
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            SecretKey secretKey = new SecretKeySpec(key.getBytes(), ALGORITHM);
-            IvParameterSpec ivSpec = new IvParameterSpec(iv);
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey, ivSpec);
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            baos.write(iv); // Write the IV at the start of the byte array
-            try (CipherOutputStream cos = new CipherOutputStream(baos, cipher)) {
-                cos.write(data);
-            }
-            // Return encrypted byte array
-            return baos.toByteArray();
+            return encryptOrThrow(data, key);
         } catch (Exception e) {
-            e.printStackTrace();
+            LOGGER.log(Level.WARNING, "Failed to encrypt data", e);
             // Return null if an error occurs
             return null;
         }
     }
 
+    /**
+     * Decrypts {@code encryptedData}, returning null if an error occurs. Errors are
+     * logged.
+     */
     public static byte[] decrypt(byte[] encryptedData, String key) {
         try {
-            ByteArrayInputStream bais = new ByteArrayInputStream(encryptedData);
-            byte[] iv = new byte[16]; // 128-bit IV (CTR mode)
-            bais.read(iv); // Read the IV from the beginning of the byte array
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            SecretKey secretKey = new SecretKeySpec(key.getBytes(), ALGORITHM);
-            IvParameterSpec ivSpec = new IvParameterSpec(iv);
-            cipher.init(Cipher.DECRYPT_MODE, secretKey, ivSpec);
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            try (CipherInputStream cis = new CipherInputStream(bais, cipher)) {
-                byte[] buffer = new byte[1024];
-                int bytesRead;
-                while ((bytesRead = cis.read(buffer)) != -1) {
-                    baos.write(buffer, 0, bytesRead);
-                }
-            }
-            // Return decrypted byte array
-            return baos.toByteArray();
+            return decryptOrThrow(encryptedData, key);
         } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to decrypt data", e);
             // Return null if an error occurs
-            e.printStackTrace();
             return null;
         }
     }
+
+    public static byte[] encryptOrThrow(@NonNull byte[] data, @NonNull String key) throws IOException {
+        try {
+            byte[] output = new byte[getEncryptedSize(data.length)];
+            byte[] iv = newIv();
+            System.arraycopy(iv, 0, output, 0, IV_SIZE); // Write the IV at the start of the byte array
+            Cipher cipher = getKey(key).getCipher(Cipher.ENCRYPT_MODE, new IvParameterSpec(iv));
+            cipher.doFinal(data, 0, data.length, output, IV_SIZE);
+            return output;
+        } catch (GeneralSecurityException exception) {
+            throw new IOException(exception);
+        }
+    }
+
+    public static byte[] decryptOrThrow(@NonNull byte[] encryptedData, @NonNull String key) throws IOException {
+        if (encryptedData.length < IV_SIZE) {
+            throw new EOFException("The encrypted data is shorter than its IV.");
+        }
+        try {
+            byte[] output = new byte[getDecryptedSize(encryptedData.length)];
+            // Read the IV from the beginning of the byte array
+            IvParameterSpec ivSpec = new IvParameterSpec(encryptedData, 0, IV_SIZE);
+            Cipher cipher = getKey(key).getCipher(Cipher.DECRYPT_MODE, ivSpec);
+            cipher.doFinal(encryptedData, IV_SIZE, output.length, output, 0);
+            return output;
+        } catch (GeneralSecurityException exception) {
+            throw new IOException(exception);
+        }
+    }
+
+    /**
+     * Encrypts everything from {@code in} to {@code out}, IV first. Neither stream
+     * is closed.
+     *
+     * @return The number of bytes written
+     */
+    public static long encrypt(@NonNull InputStream in, @NonNull OutputStream out, @NonNull String key)
+            throws IOException {
+        byte[] iv = newIv();
+        out.write(iv);
+        return IV_SIZE + transform(in, out, Cipher.ENCRYPT_MODE, key, iv);
+    }
+
+    /**
+     * Decrypts everything from {@code in}, IV first, to {@code out}. Neither
+     * stream is closed.
+     *
+     * @return The number of bytes written
+     */
+    public static long decrypt(@NonNull InputStream in, @NonNull OutputStream out, @NonNull String key)
+            throws IOException {
+        byte[] iv = in.readNBytes(IV_SIZE);
+        if (iv.length < IV_SIZE) {
+            throw new EOFException("The encrypted data is shorter than its IV.");
+        }
+        return transform(in, out, Cipher.DECRYPT_MODE, key, iv);
+    }
+
+    /**
+     * Encrypts the remaining bytes of {@code in} into {@code out}, IV first.
+     * {@code out} must have {@link #getEncryptedSize(int)} bytes remaining. Both
+     * positions advance.
+     */
+    public static void encrypt(@NonNull ByteBuffer in, @NonNull ByteBuffer out, @NonNull String key)
+            throws IOException {
+        if (out.remaining() < getEncryptedSize(in.remaining())) {
+            throw new IOException("The output buffer is too small.");
+        }
+        try {
+            byte[] iv = newIv();
+            out.put(iv);
+            getKey(key).getCipher(Cipher.ENCRYPT_MODE, new IvParameterSpec(iv)).doFinal(in, out);
+        } catch (GeneralSecurityException exception) {
+            throw new IOException(exception);
+        }
+    }
+
+    /**
+     * Decrypts the remaining bytes of {@code in}, IV first, into {@code out}.
+     * {@code out} must have {@link #getDecryptedSize(int)} bytes remaining. Both
+     * positions advance.
+     */
+    public static void decrypt(@NonNull ByteBuffer in, @NonNull ByteBuffer out, @NonNull String key)
+            throws IOException {
+        if (in.remaining() < IV_SIZE) {
+            throw new EOFException("The encrypted data is shorter than its IV.");
+        } else if (out.remaining() < getDecryptedSize(in.remaining())) {
+            throw new IOException("The output buffer is too small.");
+        }
+        try {
+            byte[] iv = new byte[IV_SIZE];
+            in.get(iv);
+            getKey(key).getCipher(Cipher.DECRYPT_MODE, new IvParameterSpec(iv)).doFinal(in, out);
+        } catch (GeneralSecurityException exception) {
+            throw new IOException(exception);
+        }
+    }
+
+    public static int getEncryptedSize(int sizeOfData) {
+        return Math.addExact(sizeOfData, IV_SIZE);
+    }
+
+    public static int getDecryptedSize(int sizeOfEncryptedData) {
+        return Math.max(0, sizeOfEncryptedData - IV_SIZE);
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    private static byte[] newIv() {
+        byte[] iv = new byte[IV_SIZE];
+        SECURE_RANDOM.nextBytes(iv); // Generate a random IV
+        return iv;
+    }
+
+    private static long transform(InputStream in, OutputStream out, int opmode, String key, byte[] iv)
+            throws IOException {
+        try {
+            // Not the thread's cipher and buffer, the streams may use them while this runs
+            Cipher cipher = getKey(key).newCipher(opmode, new IvParameterSpec(iv));
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long written = 0;
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                int length = cipher.update(buffer, 0, bytesRead, buffer, 0);
+                out.write(buffer, 0, length);
+                written += length;
+            }
+            int length = cipher.doFinal(buffer, 0);
+            out.write(buffer, 0, length);
+            return written + length;
+        } catch (GeneralSecurityException exception) {
+            throw new IOException(exception);
+        }
+    }
+
+    /**
+     * Returns the shared AES-CTR key handle of {@code key}, see
+     * {@link SomzFileAesCtr#getKey(byte[])}.
+     */
+    private static SomzFileCipherKey getKey(String key) {
+        return SomzFileAesCtr.getKey(key.getBytes());
+    }
 }
@@ -0,0 +1,287 @@
+package com.shibbeeventures.shibbeeofficialmovies.batch;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import com.shibbeeventures.annotations.NonNull;
+import com.shibbeeventures.annotations.Nullable;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileHybridCipher;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileProgressListener;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileProgressTracker;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.chunked.SomzFileChunkedCipher;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.header.SomzFileHeaderCipher;
+
+/**
+ * Encrypts or decrypts every regular file of a directory tree into a mirrored
+ * output tree.
+ *
+ * <p>
+ * Files are processed concurrently by a pool of {@link #setIoThreads(int) I/O
+ * threads}, so that many files are read and written at once. Hybrid cipher
+ * and chunked container files are additionally split into ranges transformed on a shared pool of
+ * {@link #setCpuThreads(int) CPU threads}, so large files do not take more
+ * cores than allowed however many of them are in flight. Header cipher files
+ * are only bounded by the I/O threads, their transform is a single XOR pass.
+ * </p>
+ */
+public class SomzFileBatch {
+    public static final int defaultIoThreads = 16;
+    public static final int defaultCpuThreads = Runtime.getRuntime().availableProcessors();
+    private final String encKey;
+    private final Algorithm algorithm;
+    private final boolean isEncryptProcess;
+    private int ioThreads = defaultIoThreads;
+    private int cpuThreads = defaultCpuThreads;
+
+    /**
+     * @param encKey           The key, exactly 32 bytes for the header cipher
+     * @param algorithm        The cipher the files are processed with
+     * @param isEncryptProcess True to encrypt, false to decrypt
+     * @throws IOException If the key is not valid for the cipher
+     */
+    public SomzFileBatch(@NonNull String encKey, @NonNull Algorithm algorithm, boolean isEncryptProcess)
+            throws IOException {
+        if (algorithm == Algorithm.HEADER) {
+            new SomzFileHeaderCipher(encKey); // Validates the key
+        } else if (algorithm == Algorithm.CHUNKED) {
+            new SomzFileChunkedCipher(encKey);
+        }
+        this.encKey = encKey;
+        this.algorithm = algorithm;
+        this.isEncryptProcess = isEncryptProcess;
+    }
+
+    /**
+     * Sets the maximum number of files processed at the same time.
+     */
+    public void setIoThreads(int ioThreads) {
+        this.ioThreads = checkThreads(ioThreads);
+    }
+
+    /**
+     * Sets the maximum number of threads transforming file ranges at the same
+     * time, across all files.
+     */
+    public void setCpuThreads(int cpuThreads) {
+        this.cpuThreads = checkThreads(cpuThreads);
+    }
+
+    /**
+     * Processes every regular file under {@code inputDirectory} into the same
+     * relative path under {@code outputDirectory}, replacing existing output
+     * files. A failed file does not stop the batch, it is reported in the result
+     * and its partial output is deleted.
+     *
+     * @param progressListener Receives the aggregate progress over all files
+     */
+    public Result run(@NonNull Path inputDirectory, @NonNull Path outputDirectory,
+            @Nullable SomzFileProgressListener progressListener) throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(inputDirectory)) {
+            files = stream.filter(Files::isRegularFile).toList();
+        }
+        long bytesTotal = 0;
+        for (Path file : files) {
+            bytesTotal += Files.size(file);
+        }
+        SomzFileProgressTracker tracker = new SomzFileProgressTracker(progressListener, bytesTotal);
+        List<Failure> failures = Collections.synchronizedList(new ArrayList<>());
+        AtomicLong bytesProcessed = new AtomicLong();
+        ExecutorService ioPool = Executors.newFixedThreadPool(ioThreads);
+        ForkJoinPool cpuPool = new ForkJoinPool(cpuThreads);
+        // Bounds the queued jobs, so the queue does not hold the whole catalog
+        Semaphore inFlight = new Semaphore(ioThreads * 2);
+        long startNanos = System.nanoTime();
+        try {
+            for (Path file : files) {
+                Path output = outputDirectory.resolve(inputDirectory.relativize(file).toString());
+                inFlight.acquireUninterruptibly();
+                ioPool.execute(() -> {
+                    try {
+                        long size = process(file, output, cpuPool, tracker);
+                        bytesProcessed.addAndGet(size);
+                    } catch (IOException | RuntimeException exception) {
+                        failures.add(new Failure(file, exception));
+                        try {
+                            Files.deleteIfExists(output);
+                        } catch (IOException ignored) {
+                            // The failure is already reported
+                        }
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            ioPool.shutdown();
+            while (!ioPool.awaitTermination(1, TimeUnit.SECONDS)) {
+                // Wait for the last files
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException("The batch was interrupted.", exception);
+        } finally {
+            ioPool.shutdownNow();
+            cpuPool.shutdownNow();
+        }
+        return new Result(files.size(), bytesProcessed.get(), System.nanoTime() - startNanos, failures);
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    private static int checkThreads(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Threads must be positive.");
+        }
+        return threads;
+    }
+
+    /**
+     * Processes one file, returning its size.
+     */
+    private long process(Path input, Path output, ForkJoinPool cpuPool, SomzFileProgressTracker tracker)
+            throws IOException {
+        Path parent = output.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.deleteIfExists(output); // The ciphers write over existing files without truncating them
+        FileProgress fileProgress = new FileProgress(tracker);
+        if (algorithm == Algorithm.HEADER) {
+            SomzFileHeaderCipher cipher = new SomzFileHeaderCipher(encKey);
+            try {
+                cipher.openFiles(input.toString(), output.toString());
+                cipher.setProcess(isEncryptProcess);
+                if (isEncryptProcess) {
+                    cipher.encryptInput(fileProgress);
+                } else {
+                    cipher.readHeaderFromInput();
+                    cipher.decryptInput(fileProgress);
+                }
+            } finally {
+                cipher.close();
+            }
+        } else if (algorithm == Algorithm.CHUNKED) {
+            SomzFileChunkedCipher cipher = new SomzFileChunkedCipher(encKey);
+            cipher.setExecutor(cpuPool);
+            if (isEncryptProcess) {
+                cipher.encryptFile(input.toString(), output.toString(), fileProgress);
+            } else {
+                cipher.decryptFile(input.toString(), output.toString(), fileProgress);
+            }
+        } else {
+            SomzFileHybridCipher cipher = new SomzFileHybridCipher(encKey);
+            cipher.setExecutor(cpuPool);
+            if (isEncryptProcess) {
+                cipher.encryptFile(input.toString(), output.toString(), fileProgress);
+            } else {
+                cipher.decryptFile(input.toString(), output.toString(), fileProgress);
+            }
+        }
+        fileProgress.complete(Files.size(input));
+        return Files.size(input);
+    }
+
+    /**
+     * Forwards the progress of one file to the aggregate tracker as increments.
+     */
+    private static class FileProgress implements SomzFileProgressListener {
+        private final SomzFileProgressTracker tracker;
+        private long bytesReported;
+
+        private FileProgress(SomzFileProgressTracker tracker) {
+            this.tracker = tracker;
+        }
+
+        @Override
+        public synchronized void onProgress(long bytesDone, long bytesTotal, double bytesPerSecond) {
+            complete(bytesDone);
+        }
+
+        /**
+         * Reports the file as processed up to {@code bytesDone}, ignoring bytes that
+         * were already reported.
+         */
+        private synchronized void complete(long bytesDone) {
+            if (bytesDone > bytesReported) {
+                tracker.add(bytesDone - bytesReported);
+                bytesReported = bytesDone;
+            }
+        }
+    }
+
+    // ===================== PUBLIC ENUM ===================== //
+    public enum Algorithm {
+        /** {@link SomzFileHeaderCipher} */
+        HEADER,
+        /** {@link SomzFileHybridCipher} */
+        HYBRID,
+        /** {@link SomzFileChunkedCipher} */
+        CHUNKED
+    }
+
+    public static class Failure {
+        private final Path file;
+        private final Exception exception;
+
+        private Failure(Path file, Exception exception) {
+            this.file = file;
+            this.exception = exception;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public Exception getException() {
+            return exception;
+        }
+    }
+
+    public static class Result {
+        private final int files;
+        private final long bytesProcessed;
+        private final long elapsedNanos;
+        private final List<Failure> failures;
+
+        private Result(int files, long bytesProcessed, long elapsedNanos, List<Failure> failures) {
+            this.files = files;
+            this.bytesProcessed = bytesProcessed;
+            this.elapsedNanos = elapsedNanos;
+            this.failures = List.copyOf(failures);
+        }
+
+        public int getFiles() {
+            return files;
+        }
+
+        public long getBytesProcessed() {
+            return bytesProcessed;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public List<Failure> getFailures() {
+            return failures;
+        }
+
+        /**
+         * Returns the aggregate throughput over the whole batch.
+         */
+        public double getBytesPerSecond() {
+            return elapsedNanos > 0 ? bytesProcessed * 1e9 / elapsedNanos : 0;
+        }
+    }
+}
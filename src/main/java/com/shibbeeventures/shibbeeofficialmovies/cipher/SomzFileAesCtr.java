@@ -1,10 +1,26 @@
 package com.shibbeeventures.shibbeeofficialmovies.cipher;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
 import javax.crypto.Cipher;
 import javax.crypto.spec.IvParameterSpec;
-import javax.crypto.spec.SecretKeySpec;
+
+import com.shibbeeventures.annotations.NonNull;
+import com.shibbeeventures.shibbeeofficialmovies.metrics.SomzFileMetrics;
+import com.shibbeeventures.shibbeeofficialmovies.metrics.SomzFileProbe;
 
 public class SomzFileAesCtr {
+    public static final int sizeOfBlock = 16;
+    private static final SomzFileCipherKeyCache KEYS = new SomzFileCipherKeyCache(
+            SomzFileCipherKeyCache.defaultCapacity, SomzFileCipherKey::aesCtr,
+            () -> SomzFileProviders.getProvider(SomzFileCipherKey.AES_CTR));
 
     /**
      * Encrypts data using the AES-CTR algorithm.
@@ -16,11 +32,7 @@ public class SomzFileAesCtr {
      * @throws Exception
      */
     public static byte[] encrypt(byte[] data, byte[] key, byte[] iv) throws Exception {
-        Cipher cipher = Cipher.getInstance("AES/CTR/NoPadding");
-        SecretKeySpec keySpec = new SecretKeySpec(key, "AES");
-        IvParameterSpec ivSpec = new IvParameterSpec(iv);
-        cipher.init(Cipher.ENCRYPT_MODE, keySpec, ivSpec);
-        return cipher.doFinal(data);
+        return getKey(key).encrypt(data, new IvParameterSpec(iv));
     }
 
     /**
@@ -33,11 +45,154 @@ public class SomzFileAesCtr {
      * @throws Exception
      */
     public static byte[] decrypt(byte[] encryptedData, byte[] key, byte[] iv) throws Exception {
-        Cipher cipher = Cipher.getInstance("AES/CTR/NoPadding");
-        SecretKeySpec keySpec = new SecretKeySpec(key, "AES");
-        IvParameterSpec ivSpec = new IvParameterSpec(iv);
-        cipher.init(Cipher.DECRYPT_MODE, keySpec, ivSpec);
-        return cipher.doFinal(encryptedData);
+        return getKey(key).decrypt(encryptedData, new IvParameterSpec(iv));
+    }
+
+    /**
+     * Creates an incremental AES-CTR encryptor.
+     * 
+     * @param key A 32 bytes key
+     * @param iv  A 16 bytes initialization vector
+     * @return
+     * @throws Exception
+     */
+    public static SomzFileStreamCipher newEncryptor(byte[] key, byte[] iv) throws Exception {
+        return new SomzFileStreamCipher(getKey(key), Cipher.ENCRYPT_MODE, new IvParameterSpec(iv));
+    }
+
+    /**
+     * Creates an incremental AES-CTR decryptor.
+     * 
+     * @param key A 32 bytes key
+     * @param iv  A 16 bytes initialization vector
+     * @return
+     * @throws Exception
+     */
+    public static SomzFileStreamCipher newDecryptor(byte[] key, byte[] iv) throws Exception {
+        return new SomzFileStreamCipher(getKey(key), Cipher.DECRYPT_MODE, new IvParameterSpec(iv));
+    }
+
+    /**
+     * Decrypts a part of a larger ciphertext without processing what comes
+     * before it.
+     * 
+     * @param encryptedData The encrypted bytes starting at {@code position}
+     * @param key           A 32 bytes key
+     * @param iv            The 16 bytes initialization vector of the whole
+     *                      ciphertext
+     * @param position      The offset of {@code encryptedData} in the ciphertext
+     * @return
+     * @throws Exception
+     */
+    public static byte[] decryptAt(byte[] encryptedData, byte[] key, byte[] iv, long position) throws Exception {
+        SomzFileProbe probe = SomzFileProbe.begin(SomzFileMetrics.AES_CTR, SomzFileMetrics.Operation.DECRYPT);
+        try {
+            byte[] data = encryptedData.clone();
+            newDecryptor(key, iv, position).update(data, 0, data.length, data, 0);
+            probe.end(data.length);
+            return data;
+        } catch (Exception exception) {
+            probe.fail();
+            throw exception;
+        }
+    }
+
+    /**
+     * Creates an incremental AES-CTR decryptor positioned at the ciphertext
+     * offset {@code position}. The counter of the block holding
+     * {@code position} is derived from the IV, so nothing before it is
+     * processed.
+     * 
+     * @param key      A 32 bytes key
+     * @param iv       The 16 bytes initialization vector of the whole ciphertext
+     * @param position The ciphertext offset, need not be block aligned
+     * @return
+     * @throws Exception
+     */
+    public static SomzFileStreamCipher newDecryptor(byte[] key, byte[] iv, long position) throws Exception {
+        return new SomzFileStreamCipher(getKey(key), Cipher.DECRYPT_MODE,
+                new IvParameterSpec(counterAt(iv, position / sizeOfBlock)), position, sizeOfBlock);
+    }
+
+    /**
+     * Decrypts the bytes [{@code start}, {@code end}) of the ciphertext read
+     * from {@code in}, whose position 0 is the start of the ciphertext, into
+     * {@code out}.
+     * 
+     * @param key A 32 bytes key
+     * @param iv  The 16 bytes initialization vector of the whole ciphertext
+     * @throws IOException If {@code in} ends before {@code end}
+     */
+    public static void decryptRange(@NonNull SeekableByteChannel in, long start, long end,
+            @NonNull WritableByteChannel out, byte[] key, byte[] iv) throws Exception {
+        checkRange(start, end);
+        SomzFileProbe probe = SomzFileProbe.begin(SomzFileMetrics.AES_CTR, SomzFileMetrics.Operation.DECRYPT);
+        try {
+            newDecryptor(key, iv, start).transfer(in, start, end - start, out);
+            probe.end(end - start);
+        } catch (Exception exception) {
+            probe.fail();
+            throw exception;
+        }
     }
 
+    /**
+     * Decrypts the bytes [{@code start}, {@code end}) of an encrypted file.
+     * 
+     * @param key A 32 bytes key
+     * @param iv  The 16 bytes initialization vector of the file
+     * @return
+     * @throws IOException If the file ends before {@code end}
+     */
+    public static byte[] decryptRange(@NonNull Path file, long start, long end, byte[] key, byte[] iv)
+            throws Exception {
+        checkRange(start, end);
+        if (end - start > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("The range is too large for an array.");
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) (end - start));
+        try (SeekableByteChannel in = Files.newByteChannel(file, StandardOpenOption.READ)) {
+            decryptRange(in, start, end, Channels.newChannel(out), key, iv);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns a reusable key handle for {@code key}. The handles of the
+     * {@link SomzFileCipherKeyCache#defaultCapacity} most recently used keys are
+     * cached, so repeated calls with the same key share one handle. Callers that
+     * use one key for long can keep the handle itself.
+     * 
+     * @param key A 32 bytes key
+     * @return
+     */
+    public static SomzFileCipherKey getKey(byte[] key) {
+        return KEYS.get(key);
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    /**
+     * Returns the counter block of block {@code blockIndex}: the IV plus the
+     * block index, as a 128 bits big-endian counter that wraps around.
+     */
+    private static byte[] counterAt(byte[] iv, long blockIndex) {
+        if (iv.length != sizeOfBlock) {
+            throw new IllegalArgumentException("The IV must be 16 bytes in length.");
+        }
+        byte[] counter = iv.clone();
+        long carry = blockIndex;
+        for (int i = sizeOfBlock - 1; i >= 0 && carry != 0; i--) {
+            long sum = (counter[i] & 0xFF) + (carry & 0xFF);
+            counter[i] = (byte) sum;
+            carry = (carry >>> 8) + (sum >>> 8);
+        }
+        return counter;
+    }
+
+    static void checkRange(long start, long end) {
+        if (start < 0 || end < start) {
+            throw new IllegalArgumentException("Invalid range [" + start + ", " + end + ").");
+        }
+    }
 }
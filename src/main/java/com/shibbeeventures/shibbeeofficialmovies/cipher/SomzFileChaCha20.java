@@ -1,20 +1,32 @@
 package com.shibbeeventures.shibbeeofficialmovies.cipher;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.Provider;
 import java.security.Security;
 
 import javax.crypto.Cipher;
 import javax.crypto.spec.ChaCha20ParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
-import javax.crypto.spec.SecretKeySpec;
 
-import org.conscrypt.Conscrypt;
+import com.shibbeeventures.annotations.NonNull;
+import com.shibbeeventures.shibbeeofficialmovies.metrics.SomzFileMetrics;
+import com.shibbeeventures.shibbeeofficialmovies.metrics.SomzFileProbe;
 
 public class SomzFileChaCha20 {
-
-    static {
-        // Register Conscrypt
-        Security.insertProviderAt(Conscrypt.newProvider(), 1);
-    }
+    public static final int sizeOfBlock = 64;
+    private static final SomzFileCipherKeyCache KEYS = new SomzFileCipherKeyCache(
+            SomzFileCipherKeyCache.defaultCapacity, SomzFileCipherKey::chaCha20, SomzFileChaCha20::getProvider);
+    private static final SomzFileCipherKeyCache COUNTER_KEYS = new SomzFileCipherKeyCache(
+            SomzFileCipherKeyCache.defaultCapacity,
+            key -> new SomzFileCipherKey(key, "ChaCha20", SomzFileCipherKey.CHACHA20, getCounterProvider()),
+            SomzFileChaCha20::getCounterProvider);
 
     /**
      * Encrypts data using the ChaCha20 algorithm.
@@ -26,11 +38,7 @@ public class SomzFileChaCha20 {
      * @throws Exception
      */
     public static byte[] encrypt(byte[] data, byte[] key, byte[] nonce) throws Exception {
-        Cipher cipher = getChaCha20Cipher();
-        SecretKeySpec keySpec = new SecretKeySpec(key, "ChaCha20");
-        IvParameterSpec ivSpec = new IvParameterSpec(nonce);
-        cipher.init(Cipher.ENCRYPT_MODE, keySpec, ivSpec);
-        return cipher.doFinal(data);
+        return getKey(key).encrypt(data, new IvParameterSpec(nonce));
     }
 
     /**
@@ -44,11 +52,7 @@ public class SomzFileChaCha20 {
      * @throws Exception
      */
     public static byte[] encrypt(byte[] data, byte[] key, byte[] nonce, int counter) throws Exception {
-        Cipher cipher = getChaCha20Cipher();
-        ChaCha20ParameterSpec paramSpec = new ChaCha20ParameterSpec(nonce, counter);
-        SecretKeySpec keySpec = new SecretKeySpec(key, "ChaCha20");
-        cipher.init(Cipher.ENCRYPT_MODE, keySpec, paramSpec);
-        return cipher.doFinal(data);
+        return getCounterKey(key).encrypt(data, new ChaCha20ParameterSpec(nonce, counter));
     }
 
     /**
@@ -61,11 +65,7 @@ public class SomzFileChaCha20 {
      * @throws Exception
      */
     public static byte[] decrypt(byte[] encryptedData, byte[] key, byte[] nonce) throws Exception {
-        Cipher cipher = getChaCha20Cipher();
-        SecretKeySpec keySpec = new SecretKeySpec(key, "ChaCha20");
-        IvParameterSpec ivSpec = new IvParameterSpec(nonce);
-        cipher.init(Cipher.DECRYPT_MODE, keySpec, ivSpec);
-        return cipher.doFinal(encryptedData);
+        return getKey(key).decrypt(encryptedData, new IvParameterSpec(nonce));
     }
 
     /**
@@ -79,20 +79,160 @@ public class SomzFileChaCha20 {
      * @throws Exception
      */
     public static byte[] decrypt(byte[] encryptedData, byte[] key, byte[] nonce, int counter) throws Exception {
-        Cipher cipher = getChaCha20Cipher();
-        ChaCha20ParameterSpec paramSpec = new ChaCha20ParameterSpec(nonce, counter);
-        SecretKeySpec keySpec = new SecretKeySpec(key, "ChaCha20");
-        cipher.init(Cipher.DECRYPT_MODE, keySpec, paramSpec);
-        return cipher.doFinal(encryptedData);
+        return getCounterKey(key).decrypt(encryptedData, new ChaCha20ParameterSpec(nonce, counter));
+    }
+
+    /**
+     * Creates an incremental ChaCha20 encryptor.
+     * 
+     * @param key   A 32 bytes key
+     * @param nonce A 12 bytes nonce
+     * @return
+     * @throws Exception
+     */
+    public static SomzFileStreamCipher newEncryptor(byte[] key, byte[] nonce) throws Exception {
+        return new SomzFileStreamCipher(getKey(key), Cipher.ENCRYPT_MODE, new IvParameterSpec(nonce));
     }
 
-    // ================ PRIVATE METHODS ================ //
+    /**
+     * Creates an incremental ChaCha20 decryptor.
+     * 
+     * @param key   A 32 bytes key
+     * @param nonce A 12 bytes nonce
+     * @return
+     * @throws Exception
+     */
+    public static SomzFileStreamCipher newDecryptor(byte[] key, byte[] nonce) throws Exception {
+        return new SomzFileStreamCipher(getKey(key), Cipher.DECRYPT_MODE, new IvParameterSpec(nonce));
+    }
 
-    private static Cipher getChaCha20Cipher() throws Exception {
+    /**
+     * Decrypts a part of a larger ciphertext without processing what comes
+     * before it.
+     * 
+     * @param encryptedData The encrypted bytes starting at {@code position}
+     * @param key           A 32 bytes key
+     * @param nonce         The 12 bytes nonce of the whole ciphertext
+     * @param position      The offset of {@code encryptedData} in the ciphertext
+     * @return
+     * @throws Exception
+     */
+    public static byte[] decryptAt(byte[] encryptedData, byte[] key, byte[] nonce, long position) throws Exception {
+        SomzFileProbe probe = SomzFileProbe.begin(SomzFileMetrics.CHACHA20, SomzFileMetrics.Operation.DECRYPT);
         try {
-            return Cipher.getInstance("ChaCha20", "Conscrypt");
+            byte[] data = encryptedData.clone();
+            newDecryptor(key, nonce, position).update(data, 0, data.length, data, 0);
+            probe.end(data.length);
+            return data;
         } catch (Exception exception) {
-            throw new RuntimeException("ChaCha20 is not supported", exception);
+            probe.fail();
+            throw exception;
+        }
+    }
+
+    /**
+     * Creates an incremental ChaCha20 decryptor positioned at the ciphertext
+     * offset {@code position} of a ciphertext that started at counter 0. The
+     * counter of the block holding {@code position} is derived from it, so
+     * nothing before it is processed.
+     * 
+     * @param key      A 32 bytes key
+     * @param nonce    The 12 bytes nonce of the whole ciphertext
+     * @param position The ciphertext offset, need not be block aligned
+     * @return
+     * @throws Exception
+     */
+    public static SomzFileStreamCipher newDecryptor(byte[] key, byte[] nonce, long position) throws Exception {
+        long counter = position / sizeOfBlock;
+        if (position < 0 || counter > 0xFFFFFFFFL) {
+            throw new IllegalArgumentException("The position is outside the ChaCha20 keystream.");
         }
+        return new SomzFileStreamCipher(getCounterKey(key), Cipher.DECRYPT_MODE,
+                new ChaCha20ParameterSpec(nonce, (int) counter), position, sizeOfBlock);
+    }
+
+    /**
+     * Decrypts the bytes [{@code start}, {@code end}) of the ciphertext read
+     * from {@code in}, whose position 0 is the start of the ciphertext, into
+     * {@code out}.
+     * 
+     * @param key   A 32 bytes key
+     * @param nonce The 12 bytes nonce of the whole ciphertext
+     * @throws IOException If {@code in} ends before {@code end}
+     */
+    public static void decryptRange(@NonNull SeekableByteChannel in, long start, long end,
+            @NonNull WritableByteChannel out, byte[] key, byte[] nonce) throws Exception {
+        SomzFileAesCtr.checkRange(start, end);
+        SomzFileProbe probe = SomzFileProbe.begin(SomzFileMetrics.CHACHA20, SomzFileMetrics.Operation.DECRYPT);
+        try {
+            newDecryptor(key, nonce, start).transfer(in, start, end - start, out);
+            probe.end(end - start);
+        } catch (Exception exception) {
+            probe.fail();
+            throw exception;
+        }
+    }
+
+    /**
+     * Decrypts the bytes [{@code start}, {@code end}) of an encrypted file.
+     * 
+     * @param key   A 32 bytes key
+     * @param nonce The 12 bytes nonce of the file
+     * @return
+     * @throws IOException If the file ends before {@code end}
+     */
+    public static byte[] decryptRange(@NonNull Path file, long start, long end, byte[] key, byte[] nonce)
+            throws Exception {
+        SomzFileAesCtr.checkRange(start, end);
+        if (end - start > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("The range is too large for an array.");
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) (end - start));
+        try (SeekableByteChannel in = Files.newByteChannel(file, StandardOpenOption.READ)) {
+            decryptRange(in, start, end, Channels.newChannel(out), key, nonce);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns the provider that supplies the ChaCha20 ciphers.
+     * 
+     * @see SomzFileProviders
+     */
+    public static Provider getProvider() {
+        return SomzFileProviders.getProvider(SomzFileCipherKey.CHACHA20);
+    }
+
+    /**
+     * Returns a reusable key handle for {@code key}. The handles of the
+     * {@link SomzFileCipherKeyCache#defaultCapacity} most recently used keys are
+     * cached, so repeated calls with the same key share one handle. Callers that
+     * use one key for long can keep the handle itself.
+     * 
+     * @param key A 32 bytes key
+     * @return
+     */
+    public static SomzFileCipherKey getKey(byte[] key) {
+        return KEYS.get(key);
+    }
+
+    /**
+     * Returns a key handle for ciphers that start at a given block counter.
+     * These always use the JDK implementation: Conscrypt ignores a whole
+     * {@link ChaCha20ParameterSpec}, nonce and counter, and encrypts under a
+     * random nonce, so its output could not be decrypted again, and
+     * BouncyCastle rejects the spec.
+     * 
+     * @param key A 32 bytes key
+     * @return
+     */
+    public static SomzFileCipherKey getCounterKey(byte[] key) {
+        return COUNTER_KEYS.get(key);
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    private static Provider getCounterProvider() {
+        return Security.getProvider(SomzFileProviders.SUN_JCE);
     }
 }
@@ -0,0 +1,128 @@
+package com.shibbeeventures.shibbeeofficialmovies.cipher;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import com.shibbeeventures.annotations.NonNull;
+
+/**
+ * A sidecar file recording how far a file has been durably processed, so an
+ * interrupted run can continue from there instead of from byte zero.
+ *
+ * <p>
+ * The sidecar sits next to the output file with the {@link #suffix} suffix and
+ * holds the input size, the input modification time and the processed offset.
+ * The output is forced to disk before each checkpoint is written, and the
+ * checkpoint itself is replaced atomically, so it never runs ahead of the
+ * output. A checkpoint of a modified input is ignored.
+ * </p>
+ */
+public class SomzFileCheckpoint {
+    public static final String suffix = ".somzckpt";
+    public static final long sizeOfCheckpointStep = 64L * 1048576; // Checkpoint every 64MB
+    private static final int MAGIC = 0x534F4D43; // "SOMC"
+    private static final int sizeOfCheckpoint = Integer.BYTES + 3 * Long.BYTES;
+    private static final int sizeOfTail = 65536; // Verify the last 64KB before resuming
+    private final Path sidecar;
+    private final long sizeOfInput;
+    private final long inputModifiedMillis;
+
+    /**
+     * @param inputFile  The file being processed
+     * @param outputFile The file being written
+     */
+    public SomzFileCheckpoint(@NonNull Path inputFile, @NonNull Path outputFile) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(inputFile, BasicFileAttributes.class);
+        this.sidecar = outputFile.resolveSibling(outputFile.getFileName() + suffix);
+        this.sizeOfInput = attributes.size();
+        this.inputModifiedMillis = attributes.lastModifiedTime().toMillis();
+    }
+
+    /**
+     * Returns the checkpointed offset, or 0 if there is no checkpoint or it was
+     * written for another version of the input.
+     */
+    public long load() throws IOException {
+        if (!Files.isRegularFile(sidecar)) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(sidecar))) {
+            if (in.readInt() != MAGIC || in.readLong() != sizeOfInput || in.readLong() != inputModifiedMillis) {
+                return 0;
+            }
+            long offset = in.readLong();
+            return offset > 0 && offset <= sizeOfInput ? offset : 0;
+        } catch (IOException exception) {
+            return 0; // A torn or foreign sidecar, start over
+        }
+    }
+
+    /**
+     * Returns true if the output bytes just before the checkpoint are the input
+     * bytes XORed with {@code keyByte}, i.e. the output really holds what the
+     * checkpoint claims. The checked tail never spans more than one key byte.
+     *
+     * @param outputBase The output position of input offset 0, e.g. the header size
+     */
+    public static boolean verifyTail(@NonNull FileChannel input, @NonNull FileChannel output, long outputBase,
+            long offset, byte keyByte) throws IOException {
+        int length = (int) Math.min(sizeOfTail, offset);
+        long start = offset - length;
+        if (output.size() < outputBase + offset) {
+            return false;
+        }
+        ByteBuffer expected = readFully(input, start, length);
+        ByteBuffer actual = readFully(output, outputBase + start, length);
+        SomzFileXorKernel.xor(expected, 0, expected, 0, length, keyByte);
+        return expected.equals(actual);
+    }
+
+    /**
+     * Forces {@code output} to disk, then records {@code offset} as processed.
+     */
+    public void save(@NonNull FileChannel output, long offset) throws IOException {
+        output.force(false);
+        ByteBuffer buffer = ByteBuffer.allocate(sizeOfCheckpoint);
+        buffer.putInt(MAGIC).putLong(sizeOfInput).putLong(inputModifiedMillis).putLong(offset).flip();
+        Path temp = sidecar.resolveSibling(sidecar.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, sidecar, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException exception) {
+            Files.move(temp, sidecar, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Removes the checkpoint once the output is complete.
+     */
+    public void delete() throws IOException {
+        Files.deleteIfExists(sidecar);
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) == -1) {
+                break;
+            }
+        }
+        return buffer.flip();
+    }
+}
@@ -0,0 +1,151 @@
+package com.shibbeeventures.shibbeeofficialmovies.cipher;
+
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.Provider;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.shibbeeventures.annotations.NonNull;
+import com.shibbeeventures.annotations.Nullable;
+import com.shibbeeventures.shibbeeofficialmovies.metrics.SomzFileMetrics;
+import com.shibbeeventures.shibbeeofficialmovies.metrics.SomzFileProbe;
+
+/**
+ * A reusable, thread-safe key handle. The key is prepared once, and every
+ * thread gets its own {@link Cipher} that is re-initialized instead of being
+ * looked up again. Re-initializing a cipher with the same key lets the provider
+ * keep its expanded key schedule.
+ */
+public class SomzFileCipherKey {
+    public static final String AES_CTR = "AES/CTR/NoPadding";
+    public static final String CHACHA20 = "ChaCha20";
+    private final byte[] key;
+    private final SecretKeySpec keySpec;
+    private final String transformation;
+    private final @Nullable Provider provider;
+    private final ThreadLocal<Cipher> ciphers;
+
+    /**
+     * @param key            The raw key
+     * @param algorithm      The key algorithm, e.g. {@code AES}
+     * @param transformation The cipher transformation
+     * @param provider       The provider, or null for the default one
+     */
+    public SomzFileCipherKey(@NonNull byte[] key, @NonNull String algorithm, @NonNull String transformation,
+            @Nullable Provider provider) {
+        this.key = key.clone();
+        this.keySpec = new SecretKeySpec(key, algorithm);
+        this.transformation = transformation;
+        this.provider = provider;
+        this.ciphers = ThreadLocal.withInitial(() -> {
+            try {
+                return newCipher();
+            } catch (GeneralSecurityException exception) {
+                throw new IllegalStateException(transformation + " is not supported", exception);
+            }
+        });
+    }
+
+    public static SomzFileCipherKey aesCtr(@NonNull byte[] key) {
+        return new SomzFileCipherKey(key, "AES", AES_CTR, SomzFileProviders.getProvider(AES_CTR));
+    }
+
+    public static SomzFileCipherKey chaCha20(@NonNull byte[] key) {
+        return new SomzFileCipherKey(key, "ChaCha20", CHACHA20, SomzFileProviders.getProvider(CHACHA20));
+    }
+
+    public String getTransformation() {
+        return transformation;
+    }
+
+    /**
+     * Returns the provider of the ciphers, or null for the default one.
+     */
+    public @Nullable Provider getProvider() {
+        return provider;
+    }
+
+    /**
+     * Returns the cipher name used in metrics and events.
+     */
+    public String getName() {
+        return nameOf(transformation);
+    }
+
+    /**
+     * Returns true if this handle holds exactly {@code key}.
+     */
+    public boolean matches(@NonNull byte[] key) {
+        return Arrays.equals(this.key, key);
+    }
+
+    /**
+     * Returns the calling thread's cipher, initialized with this key. The cipher
+     * must not be shared with other threads.
+     */
+    public Cipher getCipher(int opmode, @NonNull AlgorithmParameterSpec params) throws GeneralSecurityException {
+        Cipher cipher = ciphers.get();
+        try {
+            cipher.init(opmode, keySpec, params);
+        } catch (InvalidKeyException exception) {
+            // Some providers refuse to re-initialize with the key and nonce they already used
+            cipher = newCipher();
+            cipher.init(opmode, keySpec, params);
+            ciphers.set(cipher);
+        }
+        return cipher;
+    }
+
+    /**
+     * Returns a new cipher initialized with this key, owned by the caller. Use it
+     * when cipher state has to outlive a single call.
+     */
+    public Cipher newCipher(int opmode, @NonNull AlgorithmParameterSpec params) throws GeneralSecurityException {
+        Cipher cipher = newCipher();
+        cipher.init(opmode, keySpec, params);
+        return cipher;
+    }
+
+    public byte[] encrypt(@NonNull byte[] data, @NonNull AlgorithmParameterSpec params)
+            throws GeneralSecurityException {
+        return doFinal(Cipher.ENCRYPT_MODE, data, params, SomzFileMetrics.Operation.ENCRYPT);
+    }
+
+    public byte[] decrypt(@NonNull byte[] encryptedData, @NonNull AlgorithmParameterSpec params)
+            throws GeneralSecurityException {
+        return doFinal(Cipher.DECRYPT_MODE, encryptedData, params, SomzFileMetrics.Operation.DECRYPT);
+    }
+
+    /**
+     * Returns the short name of {@code transformation}, e.g. {@code aes-ctr}.
+     */
+    static String nameOf(String transformation) {
+        if (AES_CTR.equals(transformation)) {
+            return SomzFileMetrics.AES_CTR;
+        }
+        return CHACHA20.equals(transformation) ? SomzFileMetrics.CHACHA20 : transformation;
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    private byte[] doFinal(int opmode, byte[] data, AlgorithmParameterSpec params,
+            SomzFileMetrics.Operation operation) throws GeneralSecurityException {
+        SomzFileProbe probe = SomzFileProbe.begin(getName(), operation);
+        try {
+            byte[] output = getCipher(opmode, params).doFinal(data);
+            probe.end(data.length);
+            return output;
+        } catch (GeneralSecurityException | RuntimeException exception) {
+            probe.fail();
+            throw exception;
+        }
+    }
+
+    private Cipher newCipher() throws GeneralSecurityException {
+        return provider == null ? Cipher.getInstance(transformation) : Cipher.getInstance(transformation, provider);
+    }
+}
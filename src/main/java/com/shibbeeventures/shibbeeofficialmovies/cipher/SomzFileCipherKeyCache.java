@@ -0,0 +1,86 @@
+package com.shibbeeventures.shibbeeofficialmovies.cipher;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.shibbeeventures.annotations.NonNull;
+
+/**
+ * A small, thread-safe LRU map of {@link SomzFileCipherKey}s for callers that
+ * pass raw keys on every call, so each recently used key keeps one handle and
+ * its per-thread ciphers even when calls alternate between keys. Entries are
+ * looked up by a SHA-256 digest of the key, and a handle is replaced when the
+ * preferred provider changed since it was made.
+ */
+public class SomzFileCipherKeyCache {
+    public static final int defaultCapacity = 16;
+    private static final ThreadLocal<MessageDigest> DIGESTS = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 is not supported", exception);
+        }
+    });
+    private final Function<byte[], SomzFileCipherKey> factory;
+    private final Supplier<Provider> provider;
+    private final LinkedHashMap<ByteBuffer, SomzFileCipherKey> entries;
+
+    /**
+     * @param capacity The maximum number of handles kept
+     * @param factory  Creates the handle of a raw key
+     * @param provider Returns the provider new handles would use, or null for
+     *                 the default one
+     */
+    public SomzFileCipherKeyCache(int capacity, @NonNull Function<byte[], SomzFileCipherKey> factory,
+            @NonNull Supplier<Provider> provider) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        this.factory = factory;
+        this.provider = provider;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, SomzFileCipherKey> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the handle of {@code key}, creating it if it is not cached.
+     */
+    public SomzFileCipherKey get(@NonNull byte[] key) {
+        ByteBuffer digest = ByteBuffer.wrap(DIGESTS.get().digest(key));
+        SomzFileCipherKey cipherKey;
+        synchronized (entries) {
+            cipherKey = entries.get(digest);
+        }
+        if (cipherKey == null || cipherKey.getProvider() != provider.get()) {
+            cipherKey = factory.apply(key);
+            synchronized (entries) {
+                entries.put(digest, cipherKey);
+            }
+        }
+        return cipherKey;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.shibbeeventures.shibbeeofficialmovies.cipher;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.shibbeeventures.annotations.NonNull;
+import com.shibbeeventures.annotations.Nullable;
+import com.shibbeeventures.utils.SomzFileHexCodec;
+import com.shibbeeventures.utils.Utils;
+
+/**
+ * Content digests of the plaintext, computed in the same pass that encrypts or
+ * decrypts it, so a file does not have to be read again to hash it. Data must
+ * be fed in file order.
+ *
+ * <p>
+ * Instances are not thread-safe.
+ * </p>
+ */
+public class SomzFileDigest {
+    private final Map<Algorithm, MessageDigest> digests = new EnumMap<>(Algorithm.class);
+    private final Map<Algorithm, byte[]> results = new EnumMap<>(Algorithm.class);
+
+    public SomzFileDigest(@NonNull Set<Algorithm> algorithms) {
+        for (Algorithm algorithm : algorithms) {
+            try {
+                digests.put(algorithm, MessageDigest.getInstance(algorithm.getName()));
+            } catch (NoSuchAlgorithmException exception) {
+                throw new IllegalStateException(algorithm.getName() + " is not supported", exception);
+            }
+        }
+    }
+
+    public Set<Algorithm> getAlgorithms() {
+        return Collections.unmodifiableSet(digests.keySet());
+    }
+
+    /**
+     * Adds {@code length} bytes of {@code buffer} from the absolute
+     * {@code index}. The buffer position is not changed.
+     */
+    public void update(@NonNull ByteBuffer buffer, int index, int length) {
+        for (MessageDigest digest : digests.values()) {
+            digest.update(buffer.duplicate().limit(index + length).position(index));
+        }
+    }
+
+    public void update(@NonNull byte[] data, int offset, int length) {
+        for (MessageDigest digest : digests.values()) {
+            digest.update(data, offset, length);
+        }
+    }
+
+    /**
+     * Completes the digests. Further updates start new ones.
+     */
+    public void finish() {
+        for (Map.Entry<Algorithm, MessageDigest> entry : digests.entrySet()) {
+            results.put(entry.getKey(), entry.getValue().digest());
+        }
+    }
+
+    /**
+     * Returns the finished digest of {@code algorithm}, or null if it was not
+     * computed or not finished yet.
+     */
+    public @Nullable byte[] getDigest(@NonNull Algorithm algorithm) {
+        byte[] result = results.get(algorithm);
+        return Utils.notNull(result) ? result.clone() : null;
+    }
+
+    /**
+     * Returns the finished digest of {@code algorithm} as lowercase hex, the
+     * format of PHP's {@code md5_file} and {@code hash_file}, or null.
+     */
+    public @Nullable String getHexDigest(@NonNull Algorithm algorithm) {
+        byte[] result = results.get(algorithm);
+        return Utils.notNull(result) ? SomzFileHexCodec.encode(result, false) : null;
+    }
+
+    /**
+     * Checks the finished digests against {@code expected}, for every algorithm
+     * present in both.
+     *
+     * @throws IOException If a digest does not match
+     */
+    public void verify(@NonNull Map<Algorithm, byte[]> expected) throws IOException {
+        for (Map.Entry<Algorithm, byte[]> entry : expected.entrySet()) {
+            byte[] result = results.get(entry.getKey());
+            if (Utils.notNull(result) && !MessageDigest.isEqual(result, entry.getValue())) {
+                throw new IOException("The data does not match its " + entry.getKey().getName() + " digest.");
+            }
+        }
+    }
+
+    // ===================== PUBLIC ENUM ===================== //
+    public enum Algorithm {
+        MD5("MD5", 16),
+        SHA256("SHA-256", 32);
+
+        private final String name;
+        private final int size;
+
+        Algorithm(String name, int size) {
+            this.name = name;
+            this.size = size;
+        }
+
+        /**
+         * Returns the {@link MessageDigest} algorithm name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the digest length in bytes.
+         */
+        public int getSize() {
+            return size;
+        }
+    }
+}
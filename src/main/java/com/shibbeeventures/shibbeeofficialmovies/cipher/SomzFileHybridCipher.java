@@ -1,10 +1,26 @@
 package com.shibbeeventures.shibbeeofficialmovies.cipher;
 
 import java.io.*;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongConsumer;
 
 import com.shibbeeventures.annotations.NonNull;
 import com.shibbeeventures.annotations.Nullable;
+import com.shibbeeventures.shibbeeofficialmovies.metrics.SomzFileMetrics;
+import com.shibbeeventures.shibbeeofficialmovies.metrics.SomzFileProbe;
+import com.shibbeeventures.utils.SomzFileBufferPool;
+import com.shibbeeventures.utils.SomzFileChunkSource;
 import com.shibbeeventures.utils.Utils;
 
 // USING A FIXED POSITION
@@ -12,76 +28,398 @@ import com.shibbeeventures.utils.Utils;
 public class SomzFileHybridCipher {
     private final byte[] encKey;
     private static final int sizeOfFileChunk = 1048576; // Process 1MB at a time
+    private static final int sizeOfProgressStep = 65536; // Report in-memory progress every 64KB
+    private static final int sizeOfParallelRange = 16 * sizeOfFileChunk; // Process 16MB per parallel task
+    private boolean isMemoryMapped;
+    private boolean isResumable;
+    private int pipelineDepth;
+    private @Nullable Executor executor;
+    private Set<SomzFileDigest.Algorithm> digestAlgorithms = EnumSet.noneOf(SomzFileDigest.Algorithm.class);
+    private @Nullable SomzFileDigest digest;
+    private long progressIntervalMillis = SomzFileProgressTracker.defaultIntervalMillis;
+    private long progressByteStep;
 
     public SomzFileHybridCipher(@NonNull String encKey) {
         this.encKey = encKey.getBytes();
     }
 
+    /**
+     * Processes files through memory-mapped windows instead of buffered streams.
+     * The output is byte-identical to the buffered mode.
+     */
+    public void setMemoryMapped(boolean isMemoryMapped) {
+        this.isMemoryMapped = isMemoryMapped;
+    }
+
+    /**
+     * Checkpoints file progress to a {@link SomzFileCheckpoint} sidecar, and
+     * continues an interrupted run from its last checkpoint once the output tail
+     * is verified. Resumable runs are sequential and take precedence over the
+     * parallel and memory-mapped modes.
+     */
+    public void setResumable(boolean isResumable) {
+        this.isResumable = isResumable;
+    }
+
+    /**
+     * Overlaps reading, transforming and writing files with {@code depth} chunk
+     * buffers in flight, see {@link SomzFilePipelinedTransfer}. A depth of 0 turns
+     * pipelining off. The memory-mapped mode takes precedence.
+     */
+    public void setPipelineDepth(int depth) {
+        if (depth != 0 && depth < 2) {
+            throw new IllegalArgumentException("The depth must be 0 or at least 2.");
+        }
+        this.pipelineDepth = depth;
+    }
+
+    /**
+     * Splits files into ranges processed concurrently on the common
+     * {@link ForkJoinPool}. The output is byte-identical to the sequential mode.
+     */
+    public void setParallel(boolean isParallel) {
+        this.executor = isParallel ? ForkJoinPool.commonPool() : null;
+    }
+
+    /**
+     * Splits files into ranges processed concurrently on {@code executor}, or
+     * processes them sequentially when {@code executor} is null. The parallel mode
+     * takes precedence over the memory-mapped mode, and the progress listener is
+     * never called concurrently.
+     */
+    public void setExecutor(@Nullable Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Computes plaintext digests with {@code algorithms} while encrypting or
+     * decrypting files, see {@link #getDigest()}. Hybrid files have no header, so
+     * callers store and compare the digests themselves. Digests are computed in
+     * file order, so files are not split into parallel ranges while they are on,
+     * and resuming an interrupted run reads the already processed part of the
+     * input once more.
+     */
+    public void setDigests(@NonNull Set<SomzFileDigest.Algorithm> algorithms) {
+        this.digestAlgorithms = EnumSet.noneOf(SomzFileDigest.Algorithm.class);
+        this.digestAlgorithms.addAll(algorithms);
+    }
+
+    /**
+     * Returns the digests of the plaintext of the last encrypted or decrypted
+     * file, or null if none were computed.
+     */
+    public @Nullable SomzFileDigest getDigest() {
+        return digest;
+    }
+
+    /**
+     * Sets how often progress listeners are called: at most once per
+     * {@code intervalMillis}, or after every {@code byteStep} bytes. The final
+     * progress is always reported.
+     */
+    public void setProgressCoalescing(long intervalMillis, long byteStep) {
+        this.progressIntervalMillis = intervalMillis;
+        this.progressByteStep = byteStep;
+    }
+
     public byte[] encrypt(byte[] data, @Nullable ProgressListener progressListener) {
-        return this.encDecProcess(data, progressListener);
+        return this.encDecProcess(data, SomzFileMetrics.Operation.ENCRYPT, progressListener);
+    }
+
+    public byte[] encrypt(byte[] data, @Nullable SomzFileProgressListener progressListener) {
+        return this.encDecProcess(data, SomzFileMetrics.Operation.ENCRYPT, progressListener);
     }
 
     public byte[] decrypt(byte[] data, @Nullable ProgressListener progressListener) {
-        return this.encDecProcess(data, progressListener);
+        return this.encDecProcess(data, SomzFileMetrics.Operation.DECRYPT, progressListener);
+    }
+
+    public byte[] decrypt(byte[] data, @Nullable SomzFileProgressListener progressListener) {
+        return this.encDecProcess(data, SomzFileMetrics.Operation.DECRYPT, progressListener);
     }
 
     public void encryptFile(@NonNull String inputFile, @NonNull String outputFile,
             @Nullable ProgressListener progressListener) throws IOException {
-        this.encDecFileProcess(inputFile, outputFile, progressListener);
+        this.encDecFileProcess(inputFile, outputFile, true, progressListener);
+    }
+
+    public void encryptFile(@NonNull String inputFile, @NonNull String outputFile,
+            @Nullable SomzFileProgressListener progressListener) throws IOException {
+        this.encDecFileProcess(inputFile, outputFile, true, progressListener);
     }
 
     public void decryptFile(@NonNull String inputFile, @NonNull String outputFile,
             @Nullable ProgressListener progressListener) throws IOException {
-        this.encDecFileProcess(inputFile, outputFile, progressListener);
+        this.encDecFileProcess(inputFile, outputFile, false, progressListener);
+    }
+
+    public void decryptFile(@NonNull String inputFile, @NonNull String outputFile,
+            @Nullable SomzFileProgressListener progressListener) throws IOException {
+        this.encDecFileProcess(inputFile, outputFile, false, progressListener);
     }
 
     // ===================== PRIVATE METHODS ===================== //
 
-    private byte[] encDecProcess(byte[] data, @Nullable ProgressListener progressListener) {
+    private byte[] encDecProcess(byte[] data, SomzFileMetrics.Operation operation,
+            @Nullable SomzFileProgressListener progressListener) {
+        SomzFileProbe probe = SomzFileProbe.begin(SomzFileMetrics.HYBRID, operation);
         byte[] output = new byte[data.length];
-        int sizeOfKey = encKey.length;
+        byte keyByte = encKey[1 % encKey.length];
         int sizeOfData = data.length;
-        for (int i = 0; i < sizeOfData; i++) {
-            int pos = 1 % sizeOfKey;
-            byte keyByte = encKey[pos];
-            output[i] = (byte) ((data[i] ^ keyByte) & 0xFF); // XOR-based swapping using only the key length
-            if (Utils.notNull(progressListener) && sizeOfData > 0) {
-                double progress = ((double) (i + 1) / sizeOfData) * 100;
-                progressListener.onProgress(String.format("%.2f", progress));
-            }
+        SomzFileProgressTracker tracker = newTracker(progressListener, sizeOfData);
+        for (int start = 0; start < sizeOfData; start += sizeOfProgressStep) {
+            int length = Math.min(sizeOfProgressStep, sizeOfData - start);
+            SomzFileXorKernel.xor(data, start, output, start, length, keyByte);
+            tracker.update(start + length);
         }
+        probe.end(sizeOfData);
         return output;
     }
 
-    private void encDecFileProcess(@NonNull String inputFile, @NonNull String outputFile,
-            @Nullable ProgressListener progressListener) throws IOException {
-        File file = new File(inputFile);
-        long sizeOfFile = file.length();
-        long sizeOfProcessedFile = 0;
-        try (BufferedInputStream in = new BufferedInputStream(new FileInputStream(inputFile),
-                sizeOfFileChunk);
-                BufferedOutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile),
-                        sizeOfFileChunk)) {
-            byte[] buffer = new byte[sizeOfFileChunk];
-            int bytesRead;
-            while ((bytesRead = in.read(buffer)) != -1) {
-                byte[] chunk = Arrays.copyOf(buffer, bytesRead);
-                for (int i = 0; i < chunk.length; i++) {
-                    int pos = ((int) sizeOfProcessedFile + 1) % encKey.length;
-                    byte keyByte = encKey[pos];
-                    chunk[i] = (byte) ((chunk[i] ^ keyByte) & 0xFF); // XOR-based swapping using only the key length
+    private void encDecFileProcess(@NonNull String inputFile, @NonNull String outputFile, boolean isEncryptProcess,
+            @Nullable SomzFileProgressListener progressListener) throws IOException {
+        digest = digestAlgorithms.isEmpty() ? null : new SomzFileDigest(digestAlgorithms);
+        ChunkTransform chunkTransform = new ChunkTransform(digest, isEncryptProcess);
+        SomzFileProbe probe = SomzFileProbe.begin(SomzFileMetrics.HYBRID,
+                isEncryptProcess ? SomzFileMetrics.Operation.ENCRYPT : SomzFileMetrics.Operation.DECRYPT);
+        try {
+            if (isResumable) {
+                encDecResumableFileProcess(inputFile, outputFile, chunkTransform, progressListener);
+            } else if (Utils.notNull(executor) && Utils.isNull(digest)) {
+                encDecParallelFileProcess(inputFile, outputFile, executor, progressListener);
+            } else if (isMemoryMapped) {
+                encDecMappedFileProcess(inputFile, outputFile, chunkTransform, progressListener);
+            } else if (pipelineDepth > 0) {
+                encDecPipelinedFileProcess(inputFile, outputFile, chunkTransform, progressListener);
+            } else {
+                encDecStreamFileProcess(inputFile, outputFile, chunkTransform, progressListener);
+            }
+            if (Utils.notNull(digest)) {
+                digest.finish();
+            }
+            probe.end(new File(inputFile).length());
+        } catch (IOException | RuntimeException exception) {
+            probe.fail();
+            throw exception;
+        }
+    }
+
+    private void encDecStreamFileProcess(@NonNull String inputFile, @NonNull String outputFile,
+            ChunkTransform chunkTransform, @Nullable SomzFileProgressListener progressListener)
+            throws IOException {
+        try (SomzFileChunkSource source = new SomzFileChunkSource(Path.of(inputFile), sizeOfFileChunk, false);
+                FileChannel out = FileChannel.open(Path.of(outputFile), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            SomzFileProgressTracker tracker = newTracker(progressListener, source.size());
+            // Chunks are full except the last one, so they start where the key byte changes
+            source.forEach((chunk, position) -> {
+                int length = chunk.remaining();
+                chunkTransform.xor(chunk, 0, chunk, 0, length, keyByteAt(position));
+                while (chunk.hasRemaining()) {
+                    out.write(chunk);
+                }
+                tracker.update(position + length);
+                return true;
+            });
+        }
+    }
+
+    private void encDecMappedFileProcess(@NonNull String inputFile, @NonNull String outputFile,
+            ChunkTransform chunkTransform, @Nullable SomzFileProgressListener progressListener)
+            throws IOException {
+        try (FileChannel in = FileChannel.open(Path.of(inputFile), StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(Path.of(outputFile), StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long sizeOfFile = in.size();
+            SomzFileProgressTracker tracker = newTracker(progressListener, sizeOfFile);
+            SomzFileMappedTransfer.transfer(in, 0, out, 0, sizeOfFile, (src, dst, length, offset) -> {
+                // The key byte changes with every chunk, windows are a whole number of chunks
+                for (int start = 0; start < length; start += sizeOfFileChunk) {
+                    byte keyByte = keyByteAt(offset + start);
+                    chunkTransform.xor(src, start, dst, start, Math.min(sizeOfFileChunk, length - start), keyByte);
+                }
+            }, tracker::update);
+        }
+    }
+
+    private void encDecPipelinedFileProcess(@NonNull String inputFile, @NonNull String outputFile,
+            ChunkTransform chunkTransform, @Nullable SomzFileProgressListener progressListener)
+            throws IOException {
+        try (FileChannel in = FileChannel.open(Path.of(inputFile), StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(Path.of(outputFile), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long sizeOfFile = in.size();
+            SomzFileProgressTracker tracker = newTracker(progressListener, sizeOfFile);
+            SomzFilePipelinedTransfer.transfer(in, 0, out, 0, sizeOfFile, sizeOfFileChunk, pipelineDepth,
+                    (chunk, offset) -> chunkTransform.xor(chunk, 0, chunk, 0, chunk.limit(), keyByteAt(offset)),
+                    tracker::update);
+        }
+    }
+
+    private void encDecParallelFileProcess(@NonNull String inputFile, @NonNull String outputFile,
+            @NonNull Executor executor, @Nullable SomzFileProgressListener progressListener) throws IOException {
+        try (FileChannel in = FileChannel.open(Path.of(inputFile), StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(Path.of(outputFile), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long sizeOfFile = in.size();
+            SomzFileProgressTracker tracker = newTracker(progressListener, sizeOfFile);
+            List<CompletableFuture<Void>> tasks = new ArrayList<>();
+            for (long start = 0; start < sizeOfFile; start += sizeOfParallelRange) {
+                long rangeStart = start;
+                long rangeEnd = Math.min(sizeOfFile, start + sizeOfParallelRange);
+                tasks.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        encDecFileRange(in, out, rangeStart, rangeEnd, ChunkTransform.NONE, tracker::add);
+                    } catch (IOException exception) {
+                        throw new CompletionException(exception);
+                    }
+                }, executor));
+            }
+            try {
+                CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+            } catch (CompletionException exception) {
+                Throwable cause = exception.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
                 }
-                out.write(chunk);
-                sizeOfProcessedFile += bytesRead;
-                if (Utils.notNull(progressListener) && sizeOfFile > 0) {
-                    double progress = ((double) sizeOfProcessedFile / sizeOfFile) * 100;
-                    progressListener.onProgress(String.format("%.2f", progress));
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    private void encDecResumableFileProcess(@NonNull String inputFile, @NonNull String outputFile,
+            ChunkTransform chunkTransform, @Nullable SomzFileProgressListener progressListener)
+            throws IOException {
+        SomzFileCheckpoint checkpoint = new SomzFileCheckpoint(Path.of(inputFile), Path.of(outputFile));
+        try (FileChannel in = FileChannel.open(Path.of(inputFile), StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(Path.of(outputFile), StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long sizeOfFile = in.size();
+            long offset = checkpoint.load();
+            // Checkpoints are chunk aligned, so the verified tail has the key byte of the last chunk
+            if (offset % sizeOfFileChunk != 0 || (offset > 0
+                    && !SomzFileCheckpoint.verifyTail(in, out, 0, offset, keyByteAt(offset - sizeOfFileChunk)))) {
+                offset = 0;
+            }
+            if (offset > 0 && chunkTransform.isEnabled()) {
+                // The digest covers the whole plaintext, including what an earlier run processed
+                digestFileRange(chunkTransform.isEncryptProcess ? in : out, offset, chunkTransform);
+            }
+            SomzFileProgressTracker tracker = newTracker(progressListener, sizeOfFile);
+            tracker.update(offset);
+            for (long start = offset; start < sizeOfFile; start += SomzFileCheckpoint.sizeOfCheckpointStep) {
+                long end = Math.min(sizeOfFile, start + SomzFileCheckpoint.sizeOfCheckpointStep);
+                encDecFileRange(in, out, start, end, chunkTransform, tracker::add);
+                if (end < sizeOfFile) {
+                    checkpoint.save(out, end);
                 }
             }
+            out.truncate(sizeOfFile);
+            out.force(true);
         }
+        checkpoint.delete();
     }
 
-    public interface ProgressListener {
+    /**
+     * Processes the input range [start, end) chunk by chunk with positional reads
+     * and writes. {@code start} must be a multiple of {@link #sizeOfFileChunk} so
+     * the chunks match the sequential mode.
+     */
+    private void encDecFileRange(FileChannel in, FileChannel out, long start, long end,
+            ChunkTransform chunkTransform, LongConsumer onProcessed) throws IOException {
+        try (SomzFileBufferPool.Lease lease = SomzFileBufferPool.getShared().acquire(sizeOfFileChunk)) {
+            encDecFileRange(in, out, start, end, lease.buffer(), chunkTransform, onProcessed);
+        }
+    }
+
+    private void encDecFileRange(FileChannel in, FileChannel out, long start, long end, ByteBuffer buffer,
+            ChunkTransform chunkTransform, LongConsumer onProcessed) throws IOException {
+        for (long chunkStart = start; chunkStart < end; chunkStart += sizeOfFileChunk) {
+            int sizeOfChunk = (int) Math.min(sizeOfFileChunk, end - chunkStart);
+            buffer.clear().limit(sizeOfChunk);
+            while (buffer.hasRemaining()) {
+                if (in.read(buffer, chunkStart + buffer.position()) == -1) {
+                    throw new EOFException("The input file was truncated while processing.");
+                }
+            }
+            chunkTransform.xor(buffer, 0, buffer, 0, sizeOfChunk, keyByteAt(chunkStart));
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer, chunkStart + buffer.position());
+            }
+            onProcessed.accept(sizeOfChunk);
+        }
+    }
+
+    /**
+     * Digests the plaintext range [0, {@code length}) of {@code channel}.
+     */
+    private void digestFileRange(FileChannel channel, long length, ChunkTransform chunkTransform)
+            throws IOException {
+        try (SomzFileBufferPool.Lease lease = SomzFileBufferPool.getShared().acquire(sizeOfFileChunk)) {
+            ByteBuffer buffer = lease.buffer();
+            for (long offset = 0; offset < length;) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), length - offset));
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, offset + buffer.position()) == -1) {
+                        throw new EOFException("The file was truncated while processing.");
+                    }
+                }
+                chunkTransform.digest.update(buffer, 0, buffer.position());
+                offset += buffer.position();
+            }
+        }
+    }
+
+    private SomzFileProgressTracker newTracker(@Nullable SomzFileProgressListener progressListener,
+            long bytesTotal) {
+        return new SomzFileProgressTracker(progressListener, bytesTotal, progressIntervalMillis, progressByteStep);
+    }
+
+    /**
+     * Returns the key byte of the chunk starting at {@code sizeOfProcessedFile}.
+     */
+    private byte keyByteAt(long sizeOfProcessedFile) {
+        return encKey[(int) ((sizeOfProcessedFile + 1) % encKey.length)];
+    }
+
+    /**
+     * XORs file chunks, feeding the plaintext side to a digest if there is one,
+     * and records each chunk as a {@link SomzFileMetrics.Operation#CHUNK}.
+     */
+    private static class ChunkTransform {
+        private static final ChunkTransform NONE = new ChunkTransform(null, true);
+        private final @Nullable SomzFileDigest digest;
+        private final boolean isEncryptProcess;
+
+        private ChunkTransform(@Nullable SomzFileDigest digest, boolean isEncryptProcess) {
+            this.digest = digest;
+            this.isEncryptProcess = isEncryptProcess;
+        }
+
+        private boolean isEnabled() {
+            return Utils.notNull(digest);
+        }
+
+        private void xor(ByteBuffer src, int srcIndex, ByteBuffer dst, int dstIndex, int length, byte keyByte) {
+            SomzFileProbe probe = SomzFileProbe.begin(SomzFileMetrics.HYBRID, SomzFileMetrics.Operation.CHUNK);
+            if (isEnabled() && isEncryptProcess) {
+                digest.update(src, srcIndex, length);
+            }
+            SomzFileXorKernel.xor(src, srcIndex, dst, dstIndex, length, keyByte);
+            if (isEnabled() && !isEncryptProcess) {
+                digest.update(dst, dstIndex, length);
+            }
+            probe.end(length);
+        }
+    }
+
+    public interface ProgressListener extends SomzFileProgressListener {
         void onProgress(@NonNull String percentage);
+
+        @Override
+        default void onProgress(long bytesDone, long bytesTotal, double bytesPerSecond) {
+            onProgress(SomzFileProgressListener.toPercentage(bytesDone, bytesTotal));
+        }
     }
 }
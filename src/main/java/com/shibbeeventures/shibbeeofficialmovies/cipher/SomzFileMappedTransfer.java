@@ -0,0 +1,72 @@
+package com.shibbeeventures.shibbeeofficialmovies.cipher;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.shibbeeventures.annotations.NonNull;
+import com.shibbeeventures.annotations.Nullable;
+import com.shibbeeventures.utils.Utils;
+
+/**
+ * Transforms a region of one file into another through memory-mapped windows,
+ * so that every byte is read from the input mapping and written to the output
+ * mapping without passing through a heap buffer.
+ */
+public class SomzFileMappedTransfer {
+    public static final int sizeOfMappedWindow = 64 * 1048576; // Map 64MB at a time
+
+    /**
+     * Maps {@code length} bytes of {@code input} starting at
+     * {@code inputPosition} and writes the transformed bytes to {@code output}
+     * starting at {@code outputPosition}. The output file is truncated right after
+     * the last written byte.
+     *
+     * @param input          The input channel, opened for reading
+     * @param inputPosition  The first input byte to transform
+     * @param output         The output channel, opened for reading and writing
+     * @param outputPosition The position of the first output byte
+     * @param length         The number of bytes to transform
+     * @param transform      The transform applied to each window
+     * @param progress       Called after each window with the number of bytes
+     *                       processed so far
+     * @throws IOException
+     */
+    public static void transfer(@NonNull FileChannel input, long inputPosition, @NonNull FileChannel output,
+            long outputPosition, long length, @NonNull Transform transform, @Nullable Progress progress)
+            throws IOException {
+        long sizeOfProcessed = 0;
+        while (sizeOfProcessed < length) {
+            int sizeOfWindow = (int) Math.min(sizeOfMappedWindow, length - sizeOfProcessed);
+            MappedByteBuffer src = input.map(FileChannel.MapMode.READ_ONLY, inputPosition + sizeOfProcessed,
+                    sizeOfWindow);
+            MappedByteBuffer dst = output.map(FileChannel.MapMode.READ_WRITE, outputPosition + sizeOfProcessed,
+                    sizeOfWindow);
+            transform.apply(src, dst, sizeOfWindow, sizeOfProcessed);
+            sizeOfProcessed += sizeOfWindow;
+            if (Utils.notNull(progress)) {
+                progress.onProcessed(sizeOfProcessed);
+            }
+        }
+        if (output.size() > outputPosition + length) {
+            output.truncate(outputPosition + length);
+        }
+    }
+
+    // ===================== PUBLIC ENUM ===================== //
+
+    public interface Transform {
+        /**
+         * Transforms {@code length} bytes from {@code src} into {@code dst}, both
+         * starting at index 0.
+         *
+         * @param offset The offset of the window from the start of the transfer,
+         *               always a multiple of {@link #sizeOfMappedWindow}
+         */
+        void apply(@NonNull MappedByteBuffer src, @NonNull MappedByteBuffer dst, int length, long offset);
+    }
+
+    public interface Progress {
+        void onProcessed(long sizeOfProcessed);
+    }
+}
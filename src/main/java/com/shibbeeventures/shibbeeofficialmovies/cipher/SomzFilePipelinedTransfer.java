@@ -0,0 +1,230 @@
+package com.shibbeeventures.shibbeeofficialmovies.cipher;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.shibbeeventures.annotations.NonNull;
+import com.shibbeeventures.annotations.Nullable;
+import com.shibbeeventures.utils.SomzFileBufferPool;
+import com.shibbeeventures.utils.Utils;
+
+/**
+ * Transforms a region of one file into another with overlapping stages: a
+ * reader thread reads ahead into a ring of {@code depth} chunk buffers, the
+ * calling thread transforms them, and a writer thread writes them behind. When
+ * every buffer is waiting to be written the reader blocks, so at most
+ * {@code depth} chunks are in flight.
+ */
+public class SomzFilePipelinedTransfer {
+    public static final int defaultDepth = 4;
+    private static final ExecutorService STAGES = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "somzfile-pipeline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Reads {@code length} bytes of {@code input} starting at
+     * {@code inputPosition} in chunks of {@code sizeOfChunk} bytes and writes the
+     * transformed chunks to {@code output} starting at {@code outputPosition}.
+     * Positional reads and writes are used, so neither channel position moves.
+     *
+     * @param depth     The number of chunk buffers in flight, at least 2
+     * @param transform The transform applied in place to each chunk
+     * @param progress  Called on the writer thread after each written chunk with
+     *                  the number of bytes written so far
+     * @throws IOException
+     */
+    public static void transfer(@NonNull FileChannel input, long inputPosition, @NonNull FileChannel output,
+            long outputPosition, long length, int sizeOfChunk, int depth, @NonNull Transform transform,
+            @Nullable Progress progress) throws IOException {
+        if (depth < 2) {
+            throw new IllegalArgumentException("The depth must be at least 2.");
+        }
+        int sizeOfBuffer = (int) Math.max(0, Math.min(sizeOfChunk, length));
+        List<SomzFileBufferPool.Lease> leases = new ArrayList<>();
+        // One more than the chunks, so the end marker always fits and puts never block
+        BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(depth + 1);
+        BlockingQueue<Chunk> read = new ArrayBlockingQueue<>(depth + 1);
+        BlockingQueue<Chunk> transformed = new ArrayBlockingQueue<>(depth + 1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch stages = new CountDownLatch(2);
+        try {
+            for (int i = 0; i < depth; i++) {
+                SomzFileBufferPool.Lease lease = SomzFileBufferPool.getShared().acquire(sizeOfBuffer);
+                leases.add(lease);
+                free.add(new Chunk(lease.buffer()));
+            }
+            STAGES.execute(() -> runStage(stages, failure,
+                    () -> read(input, inputPosition, length, free, read, failure)));
+            STAGES.execute(() -> runStage(stages, failure,
+                    () -> write(output, outputPosition, transformed, free, failure, progress)));
+            try {
+                Chunk chunk;
+                while ((chunk = read.take()) != Chunk.END) {
+                    if (Utils.isNull(failure.get())) {
+                        try {
+                            transform.apply(chunk.buffer, chunk.offset);
+                        } catch (RuntimeException exception) {
+                            failure.compareAndSet(null, exception);
+                        }
+                    }
+                    transformed.add(chunk);
+                }
+            } catch (InterruptedException exception) {
+                // The reader notices the failure and stops, the interrupt is restored below
+                failure.compareAndSet(null, new InterruptedIOException("The transfer was interrupted."));
+            }
+            transformed.add(Chunk.END);
+            awaitStages(stages);
+        } finally {
+            // The stages are done with the buffers, unless they could not be started
+            for (SomzFileBufferPool.Lease lease : leases) {
+                lease.close();
+            }
+        }
+        Throwable cause = failure.get();
+        if (cause instanceof InterruptedIOException) {
+            Thread.currentThread().interrupt();
+        }
+        if (cause instanceof IOException) {
+            throw (IOException) cause;
+        } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } else if (Utils.notNull(cause)) {
+            throw new IOException(cause);
+        }
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    private static void runStage(CountDownLatch stages, AtomicReference<Throwable> failure, Runnable stage) {
+        try {
+            stage.run();
+        } catch (Throwable throwable) {
+            failure.compareAndSet(null, throwable);
+        } finally {
+            stages.countDown();
+        }
+    }
+
+    private static void awaitStages(CountDownLatch stages) {
+        boolean isInterrupted = false;
+        while (true) {
+            try {
+                stages.await();
+                break;
+            } catch (InterruptedException exception) {
+                isInterrupted = true;
+            }
+        }
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reads chunks until the end of the range or a failure. Free buffers are
+     * polled, so a failure elsewhere is noticed even when none comes back.
+     */
+    private static void read(FileChannel input, long inputPosition, long length, BlockingQueue<Chunk> free,
+            BlockingQueue<Chunk> read, AtomicReference<Throwable> failure) {
+        try {
+            for (long offset = 0; offset < length;) {
+                Chunk chunk = free.poll(10, TimeUnit.MILLISECONDS);
+                if (Utils.notNull(failure.get())) {
+                    break;
+                } else if (Utils.isNull(chunk)) {
+                    continue;
+                }
+                ByteBuffer buffer = chunk.buffer;
+                buffer.clear().limit((int) Math.min(buffer.capacity(), length - offset));
+                while (buffer.hasRemaining()) {
+                    if (input.read(buffer, inputPosition + offset + buffer.position()) == -1) {
+                        throw new EOFException("The input file was truncated while processing.");
+                    }
+                }
+                buffer.flip();
+                chunk.offset = offset;
+                offset += buffer.limit();
+                read.add(chunk);
+            }
+        } catch (IOException | RuntimeException exception) {
+            failure.compareAndSet(null, exception);
+        } catch (InterruptedException exception) {
+            failure.compareAndSet(null, new InterruptedIOException("The transfer was interrupted."));
+        } finally {
+            read.add(Chunk.END);
+        }
+    }
+
+    /**
+     * Writes transformed chunks until the end marker. After a failure chunks are
+     * only recycled, so the reader never waits for a buffer that will not come.
+     */
+    private static void write(FileChannel output, long outputPosition, BlockingQueue<Chunk> transformed,
+            BlockingQueue<Chunk> free, AtomicReference<Throwable> failure, @Nullable Progress progress) {
+        long sizeOfWritten = 0;
+        try {
+            Chunk chunk;
+            while ((chunk = transformed.take()) != Chunk.END) {
+                try {
+                    if (Utils.isNull(failure.get())) {
+                        ByteBuffer buffer = chunk.buffer;
+                        while (buffer.hasRemaining()) {
+                            output.write(buffer, outputPosition + chunk.offset + buffer.position());
+                        }
+                        sizeOfWritten += buffer.limit();
+                        if (Utils.notNull(progress)) {
+                            progress.onProcessed(sizeOfWritten);
+                        }
+                    }
+                } catch (IOException | RuntimeException exception) {
+                    failure.compareAndSet(null, exception);
+                } finally {
+                    free.add(chunk);
+                }
+            }
+        } catch (InterruptedException exception) {
+            failure.compareAndSet(null, new InterruptedIOException("The transfer was interrupted."));
+        }
+    }
+
+    private static class Chunk {
+        private static final Chunk END = new Chunk(null);
+        private final ByteBuffer buffer;
+        private long offset;
+
+        private Chunk(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+
+    // ===================== PUBLIC ENUM ===================== //
+
+    public interface Transform {
+        /**
+         * Transforms the chunk in place, from index 0 to its limit.
+         *
+         * @param offset The offset of the chunk from the start of the transfer,
+         *               always a multiple of the chunk size
+         */
+        void apply(@NonNull ByteBuffer chunk, long offset);
+    }
+
+    public interface Progress {
+        void onProcessed(long sizeOfProcessed);
+    }
+}
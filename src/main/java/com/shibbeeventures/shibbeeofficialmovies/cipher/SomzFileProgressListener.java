@@ -0,0 +1,26 @@
+package com.shibbeeventures.shibbeeofficialmovies.cipher;
+
+/**
+ * Receives progress as primitive values, so reporting allocates nothing. Calls
+ * are coalesced by {@link SomzFileProgressTracker}.
+ */
+public interface SomzFileProgressListener {
+    /**
+     * @param bytesDone      The number of bytes processed so far
+     * @param bytesTotal     The total number of bytes to process
+     * @param bytesPerSecond The average throughput since the operation started
+     */
+    void onProgress(long bytesDone, long bytesTotal, double bytesPerSecond);
+
+    /**
+     * Formats progress the way the percentage callbacks receive it, e.g.
+     * {@code "42.50"}. An operation with nothing to process is complete.
+     */
+    static String toPercentage(long bytesDone, long bytesTotal) {
+        if (bytesTotal <= 0) {
+            return String.format("%.2f", 100.0);
+        }
+        double progress = ((double) bytesDone / bytesTotal) * 100;
+        return String.format("%.2f", progress);
+    }
+}
@@ -0,0 +1,86 @@
+package com.shibbeeventures.shibbeeofficialmovies.cipher;
+
+import com.shibbeeventures.annotations.Nullable;
+import com.shibbeeventures.utils.Utils;
+
+/**
+ * Tracks the progress of one operation and forwards it to a
+ * {@link SomzFileProgressListener} at most once per time interval or byte step.
+ * The final update is always forwarded. Updates may come from several threads,
+ * the listener is never called concurrently and never sees progress go
+ * backwards.
+ */
+public class SomzFileProgressTracker {
+    public static final long defaultIntervalMillis = 100;
+    private final @Nullable SomzFileProgressListener listener;
+    private final long bytesTotal;
+    private final long intervalNanos;
+    private final long byteStep;
+    private final long startNanos;
+    private long bytesDone;
+    private long lastBytesDone;
+    private long lastNanos;
+
+    public SomzFileProgressTracker(@Nullable SomzFileProgressListener listener, long bytesTotal) {
+        this(listener, bytesTotal, defaultIntervalMillis, 0);
+    }
+
+    /**
+     * @param listener       The listener, or null to track nothing
+     * @param bytesTotal     The total number of bytes to process
+     * @param intervalMillis The minimum time between two calls, 0 to disable
+     * @param byteStep       The number of bytes after which a call is made even
+     *                       within the interval, 0 to disable
+     */
+    public SomzFileProgressTracker(@Nullable SomzFileProgressListener listener, long bytesTotal,
+            long intervalMillis, long byteStep) {
+        this.listener = listener;
+        this.bytesTotal = bytesTotal;
+        this.intervalNanos = intervalMillis * 1000000L;
+        this.byteStep = byteStep;
+        this.startNanos = Utils.notNull(listener) ? System.nanoTime() : 0;
+        this.lastNanos = startNanos;
+    }
+
+    /**
+     * Adds {@code bytes} to the number of bytes processed.
+     */
+    public void add(long bytes) {
+        if (Utils.notNull(listener)) {
+            synchronized (this) {
+                report(bytesDone + bytes);
+            }
+        }
+    }
+
+    /**
+     * Sets the number of bytes processed.
+     */
+    public void update(long bytesDone) {
+        if (Utils.notNull(listener)) {
+            synchronized (this) {
+                report(Math.max(this.bytesDone, bytesDone));
+            }
+        }
+    }
+
+    public synchronized long getBytesDone() {
+        return bytesDone;
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    private void report(long bytesDone) {
+        this.bytesDone = bytesDone;
+        long now = System.nanoTime();
+        boolean isDone = bytesDone >= bytesTotal;
+        boolean isStep = byteStep > 0 && bytesDone - lastBytesDone >= byteStep;
+        boolean isInterval = now - lastNanos >= intervalNanos;
+        if ((isDone && lastBytesDone < bytesTotal) || isStep || (isInterval && !isDone)) {
+            lastBytesDone = bytesDone;
+            lastNanos = now;
+            double seconds = (now - startNanos) / 1e9;
+            listener.onProgress(bytesDone, bytesTotal, seconds > 0 ? bytesDone / seconds : 0);
+        }
+    }
+}
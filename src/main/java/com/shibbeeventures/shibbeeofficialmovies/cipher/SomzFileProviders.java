@@ -0,0 +1,263 @@
+package com.shibbeeventures.shibbeeofficialmovies.cipher;
+
+import java.security.GeneralSecurityException;
+import java.security.Provider;
+import java.security.Security;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.conscrypt.Conscrypt;
+
+import com.shibbeeventures.annotations.NonNull;
+import com.shibbeeventures.utils.Utils;
+
+/**
+ * Chooses the JCE provider of each cipher transformation the first time it is
+ * needed, instead of installing one provider for the whole JVM. The candidates
+ * are SunJCE, Conscrypt and BouncyCastle; a candidate is only used if it
+ * accepts the parameters the ciphers pass, outputs every byte as soon as it is
+ * consumed, as {@link SomzFileStreamCipher} needs, and produces the same
+ * keystream as the others. Conscrypt and BouncyCastle are only loaded when a
+ * transformation is resolved.
+ *
+ * <p>
+ * By default the first usable candidate in the order Conscrypt, SunJCE,
+ * BouncyCastle is chosen. The {@code somzfile.provider.aes-ctr} and
+ * {@code somzfile.provider.chacha20} system properties name the provider to
+ * use, or {@code calibrate} to measure every candidate and choose the fastest.
+ * {@link #setProvider(String, String)} and {@link #calibrate(String)} do the
+ * same at runtime. Key handles created before a change keep their provider.
+ * </p>
+ */
+public class SomzFileProviders {
+    public static final String SUN_JCE = "SunJCE";
+    public static final String CONSCRYPT = "Conscrypt";
+    public static final String BOUNCY_CASTLE = "BC";
+    private static final String CALIBRATE = "calibrate";
+    private static final int sizeOfCheck = 256;
+    private static final int sizeOfCheckHead = 5; // Not a multiple of any block size
+    private static final int sizeOfCalibrationData = 64 * 1024;
+    private static final long calibrationNanos = 20_000_000L; // Per candidate, after as long a warm-up
+    private static final ConcurrentHashMap<String, Provider> selected = new ConcurrentHashMap<>();
+    private static List<Provider> providers;
+
+    /**
+     * Returns the provider chosen for {@code transformation}, resolving it on the
+     * first call.
+     *
+     * @throws IllegalArgumentException If the transformation is not one of the
+     *                                  {@link SomzFileCipherKey} ones
+     * @throws IllegalStateException    If the configured provider is not usable
+     */
+    public static Provider getProvider(@NonNull String transformation) {
+        Provider provider = selected.get(transformation);
+        if (provider == null) {
+            provider = selected.computeIfAbsent(transformation, SomzFileProviders::resolve);
+        }
+        return provider;
+    }
+
+    /**
+     * Uses the provider named {@code name} for {@code transformation} from now
+     * on.
+     *
+     * @throws IllegalStateException If that provider is not usable for the
+     *                               transformation
+     */
+    public static void setProvider(@NonNull String transformation, @NonNull String name) {
+        selected.put(transformation, find(transformation, name));
+    }
+
+    /**
+     * Returns the providers usable for {@code transformation}, in the default
+     * order of preference.
+     */
+    public static List<Provider> getCandidates(@NonNull String transformation) {
+        Spec spec = specOf(transformation);
+        List<Provider> candidates = new ArrayList<>();
+        byte[] reference = null;
+        for (Provider provider : getProviders()) {
+            byte[] keystream = keystream(spec, provider);
+            if (Utils.isNull(keystream)) {
+                continue;
+            }
+            if (Utils.isNull(reference)) {
+                reference = keystream;
+            }
+            if (Arrays.equals(reference, keystream)) {
+                candidates.add(provider);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Measures the throughput of every usable provider of
+     * {@code transformation}, switches to the fastest and returns the bytes per
+     * second of each, by provider name. Takes about 40 milliseconds per
+     * candidate.
+     *
+     * @throws IllegalStateException If no provider is usable
+     */
+    public static Map<String, Double> calibrate(@NonNull String transformation) {
+        Map<String, Double> throughputs = new LinkedHashMap<>();
+        Provider fastest = calibrate(transformation, throughputs);
+        selected.put(transformation, fastest);
+        return throughputs;
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    private static Provider resolve(String transformation) {
+        String name = System.getProperty("somzfile.provider." + SomzFileCipherKey.nameOf(transformation));
+        if (CALIBRATE.equalsIgnoreCase(name)) {
+            return calibrate(transformation, new LinkedHashMap<>());
+        }
+        if (Utils.notNull(name)) {
+            return find(transformation, name);
+        }
+        List<Provider> candidates = getCandidates(transformation);
+        if (candidates.isEmpty()) {
+            throw new IllegalStateException("No provider supports " + transformation + ".");
+        }
+        return candidates.get(0);
+    }
+
+    private static Provider find(String transformation, String name) {
+        for (Provider provider : getCandidates(transformation)) {
+            if (provider.getName().equalsIgnoreCase(name)) {
+                return provider;
+            }
+        }
+        throw new IllegalStateException("The provider " + name + " cannot be used for " + transformation + ".");
+    }
+
+    private static Provider calibrate(String transformation, Map<String, Double> throughputs) {
+        Spec spec = specOf(transformation);
+        Provider fastest = null;
+        double fastestThroughput = -1;
+        for (Provider provider : getCandidates(transformation)) {
+            double throughput;
+            try {
+                throughput = measure(spec, provider);
+            } catch (GeneralSecurityException exception) {
+                continue;
+            }
+            throughputs.put(provider.getName(), throughput);
+            if (throughput > fastestThroughput) {
+                fastest = provider;
+                fastestThroughput = throughput;
+            }
+        }
+        if (Utils.isNull(fastest)) {
+            throw new IllegalStateException("No provider supports " + transformation + ".");
+        }
+        return fastest;
+    }
+
+    /**
+     * Returns the bytes per second {@code provider} encrypts, after warming it
+     * up for as long as it is measured.
+     */
+    private static double measure(Spec spec, Provider provider) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance(spec.transformation, provider);
+        byte[] data = new byte[sizeOfCalibrationData];
+        SecretKeySpec key = new SecretKeySpec(new byte[spec.sizeOfKey], spec.algorithm);
+        AlgorithmParameterSpec params = new IvParameterSpec(new byte[spec.sizeOfIv]);
+        long warmUpEnd = System.nanoTime() + calibrationNanos;
+        while (System.nanoTime() < warmUpEnd) {
+            cipher.init(Cipher.ENCRYPT_MODE, key, params);
+            cipher.doFinal(data, 0, data.length, data);
+        }
+        long bytes = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            cipher.init(Cipher.ENCRYPT_MODE, key, params);
+            bytes += cipher.doFinal(data, 0, data.length, data);
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < calibrationNanos);
+        return bytes * 1e9 / elapsed;
+    }
+
+    /**
+     * Returns the first bytes of the keystream of a zero key and IV, or null if
+     * {@code provider} does not support the transformation with those
+     * parameters or holds back part of a block.
+     */
+    private static byte[] keystream(Spec spec, Provider provider) {
+        try {
+            Cipher cipher = Cipher.getInstance(spec.transformation, provider);
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(new byte[spec.sizeOfKey], spec.algorithm),
+                    new IvParameterSpec(new byte[spec.sizeOfIv]));
+            byte[] keystream = new byte[sizeOfCheck];
+            int head = cipher.update(keystream, 0, sizeOfCheckHead, keystream, 0);
+            if (head != sizeOfCheckHead) {
+                return null;
+            }
+            cipher.doFinal(keystream, head, sizeOfCheck - head, keystream, head);
+            return keystream;
+        } catch (GeneralSecurityException | RuntimeException exception) {
+            return null;
+        }
+    }
+
+    private static synchronized List<Provider> getProviders() {
+        if (Utils.isNull(providers)) {
+            List<Provider> loaded = new ArrayList<>();
+            try {
+                if (Conscrypt.isAvailable()) {
+                    loaded.add(Conscrypt.newProvider());
+                }
+            } catch (LinkageError error) {
+                // The native library is missing for this platform
+            }
+            Provider sunJce = Security.getProvider(SUN_JCE);
+            if (Utils.notNull(sunJce)) {
+                loaded.add(sunJce);
+            }
+            loaded.add(new BouncyCastleProvider());
+            providers = Collections.unmodifiableList(loaded);
+        }
+        return providers;
+    }
+
+    private static Spec specOf(String transformation) {
+        switch (transformation) {
+            case SomzFileCipherKey.AES_CTR:
+                return new Spec(transformation, "AES", 32, 16);
+            case SomzFileCipherKey.CHACHA20:
+                return new Spec(transformation, "ChaCha20", 32, 12);
+            default:
+                throw new IllegalArgumentException("Unknown transformation " + transformation + ".");
+        }
+    }
+
+    /**
+     * The key and IV the ciphers use with a transformation.
+     */
+    private static class Spec {
+        private final String transformation;
+        private final String algorithm;
+        private final int sizeOfKey;
+        private final int sizeOfIv;
+
+        private Spec(String transformation, String algorithm, int sizeOfKey, int sizeOfIv) {
+            this.transformation = transformation;
+            this.algorithm = algorithm;
+            this.sizeOfKey = sizeOfKey;
+            this.sizeOfIv = sizeOfIv;
+        }
+    }
+}
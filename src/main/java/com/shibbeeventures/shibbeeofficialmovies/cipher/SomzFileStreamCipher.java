@@ -0,0 +1,202 @@
+package com.shibbeeventures.shibbeeofficialmovies.cipher;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.GeneralSecurityException;
+import java.security.spec.AlgorithmParameterSpec;
+
+import javax.crypto.Cipher;
+
+import com.shibbeeventures.annotations.NonNull;
+import com.shibbeeventures.shibbeeofficialmovies.metrics.SomzFileMetrics;
+import com.shibbeeventures.shibbeeofficialmovies.metrics.SomzFileProbe;
+import com.shibbeeventures.utils.SomzFileBufferPool;
+
+/**
+ * An incremental AES-CTR or ChaCha20 encryptor or decryptor. The keystream
+ * position is carried across calls, so data can be pushed through in pieces of
+ * any size, from heap or direct buffers, and in place. Both ciphers are stream
+ * ciphers: every call outputs exactly as many bytes as it consumes.
+ *
+ * <p>
+ * Instances are not thread-safe.
+ * </p>
+ */
+public class SomzFileStreamCipher {
+    public static final int sizeOfTransferBuffer = 65536;
+    private static final int sizeOfSkipBuffer = 4096;
+    private final Cipher cipher;
+    private final String name;
+    private long bytesProcessed;
+
+    public SomzFileStreamCipher(@NonNull SomzFileCipherKey key, int opmode, @NonNull AlgorithmParameterSpec params)
+            throws GeneralSecurityException {
+        this.cipher = key.newCipher(opmode, params);
+        this.name = key.getName();
+    }
+
+    /**
+     * Creates a cipher positioned at the keystream offset {@code position}.
+     * {@code params} must start the keystream at the block holding
+     * {@code position}, the rest of that block up to {@code position} is
+     * skipped.
+     *
+     * @param sizeOfBlock The keystream block size of the cipher
+     */
+    SomzFileStreamCipher(SomzFileCipherKey key, int opmode, AlgorithmParameterSpec params, long position,
+            int sizeOfBlock) throws GeneralSecurityException {
+        this(key, opmode, params);
+        int offsetInBlock = (int) (position % sizeOfBlock);
+        this.bytesProcessed = position - offsetInBlock;
+        skip(offsetInBlock);
+    }
+
+    /**
+     * Transforms the remaining bytes of {@code in} into {@code out}, as many as
+     * fit in {@code out}. Both positions advance by the returned count.
+     * {@code in} and {@code out} may be the same buffer for in-place operation.
+     *
+     * @return The number of bytes transformed
+     */
+    public int update(@NonNull ByteBuffer in, @NonNull ByteBuffer out) throws GeneralSecurityException {
+        if (in == out) {
+            return update(in);
+        }
+        int length = Math.min(in.remaining(), out.remaining());
+        int limit = in.limit();
+        in.limit(in.position() + length);
+        try {
+            cipher.update(in, out);
+        } finally {
+            in.limit(limit);
+        }
+        bytesProcessed += length;
+        return length;
+    }
+
+    /**
+     * Transforms the remaining bytes of {@code buffer} in place and advances its
+     * position to its limit.
+     *
+     * @return The number of bytes transformed
+     */
+    public int update(@NonNull ByteBuffer buffer) throws GeneralSecurityException {
+        int length = buffer.remaining();
+        // Cipher refuses the same buffer object as input and output, a duplicate shares the content
+        ByteBuffer input = buffer.duplicate();
+        cipher.update(input, buffer);
+        bytesProcessed += length;
+        return length;
+    }
+
+    /**
+     * Transforms {@code length} bytes of {@code in} into {@code out}. The arrays
+     * may be the same, with the same offsets, for in-place operation.
+     */
+    public int update(@NonNull byte[] in, int inOffset, int length, @NonNull byte[] out, int outOffset)
+            throws GeneralSecurityException {
+        int written = cipher.update(in, inOffset, length, out, outOffset);
+        bytesProcessed += written;
+        return written;
+    }
+
+    /**
+     * Streams every remaining byte of {@code in} through the cipher into
+     * {@code out}, using a single pooled direct buffer of
+     * {@link #sizeOfTransferBuffer} bytes.
+     *
+     * @return The number of bytes transferred
+     */
+    public long transfer(@NonNull ReadableByteChannel in, @NonNull WritableByteChannel out) throws IOException {
+        long transferred = 0;
+        try (SomzFileBufferPool.Lease lease = SomzFileBufferPool.getShared().acquire(sizeOfTransferBuffer)) {
+            ByteBuffer buffer = lease.buffer();
+            while (in.read(buffer) != -1) {
+                buffer.flip();
+                transferred += updateChunk(buffer);
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                buffer.clear();
+            }
+        } catch (GeneralSecurityException exception) {
+            throw new IOException(exception);
+        }
+        return transferred;
+    }
+
+    /**
+     * Transforms the bytes [{@code position}, {@code position + length}) of
+     * {@code in} into {@code out}, using a single pooled direct buffer of
+     * {@link #sizeOfTransferBuffer} bytes. The keystream is not moved, it must
+     * already be at the offset matching {@code position}.
+     *
+     * @throws EOFException If {@code in} ends before the range does
+     */
+    public void transfer(@NonNull SeekableByteChannel in, long position, long length,
+            @NonNull WritableByteChannel out) throws IOException {
+        in.position(position);
+        try (SomzFileBufferPool.Lease lease = SomzFileBufferPool.getShared().acquire(sizeOfTransferBuffer)) {
+            ByteBuffer buffer = lease.buffer();
+            for (long remaining = length; remaining > 0;) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), remaining));
+                if (in.read(buffer) == -1) {
+                    throw new EOFException("The range ends after the end of the input.");
+                }
+                buffer.flip();
+                remaining -= updateChunk(buffer);
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+            }
+        } catch (GeneralSecurityException exception) {
+            throw new IOException(exception);
+        }
+    }
+
+    /**
+     * Returns the cipher name used in metrics and events.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Advances the keystream by {@code length} bytes without output.
+     */
+    public void skip(long length) throws GeneralSecurityException {
+        byte[] scratch = new byte[(int) Math.min(length, sizeOfSkipBuffer)];
+        for (long remaining = length; remaining > 0;) {
+            int count = (int) Math.min(scratch.length, remaining);
+            update(scratch, 0, count, scratch, 0);
+            remaining -= count;
+        }
+    }
+
+    /**
+     * Returns the keystream position, i.e. the number of bytes transformed so
+     * far, plus the start offset of a positioned cipher.
+     */
+    public long getBytesProcessed() {
+        return bytesProcessed;
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    /**
+     * Transforms a transfer chunk in place, recording it as a
+     * {@link SomzFileMetrics.Operation#CHUNK}.
+     */
+    private int updateChunk(ByteBuffer buffer) throws GeneralSecurityException {
+        SomzFileProbe probe = SomzFileProbe.begin(name, SomzFileMetrics.Operation.CHUNK);
+        int length = update(buffer);
+        probe.end(length);
+        return length;
+    }
+}
@@ -0,0 +1,113 @@
+package com.shibbeeventures.shibbeeofficialmovies.cipher;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.shibbeeventures.annotations.NonNull;
+
+/**
+ * The XOR kernel shared by the hybrid and header ciphers. Every byte of a range
+ * is XORed with a single key byte, so the wide kernel applies the key byte
+ * broadcast into a {@code long} to 8 bytes at a time and finishes the tail
+ * byte by byte. All kernels produce byte-identical output.
+ *
+ * <p>
+ * The kernel is selected with the {@code somzfile.xor.kernel} system property
+ * ({@code wide} or {@code scalar}, default {@code wide}) or with
+ * {@link #setDefault(Kernel)}.
+ * </p>
+ */
+public class SomzFileXorKernel {
+    public static final Kernel SCALAR = new ScalarKernel();
+    public static final Kernel WIDE = new WideKernel();
+    private static volatile Kernel defaultKernel = "scalar".equalsIgnoreCase(
+            System.getProperty("somzfile.xor.kernel")) ? SCALAR : WIDE;
+
+    public static Kernel getDefault() {
+        return defaultKernel;
+    }
+
+    public static void setDefault(@NonNull Kernel kernel) {
+        defaultKernel = kernel;
+    }
+
+    /**
+     * XORs {@code length} bytes of {@code src} into {@code dst} with the default
+     * kernel. {@code src} and {@code dst} may be the same array.
+     */
+    public static void xor(byte[] src, int srcOffset, byte[] dst, int dstOffset, int length, byte keyByte) {
+        defaultKernel.apply(src, srcOffset, dst, dstOffset, length, keyByte);
+    }
+
+    /**
+     * XORs {@code length} bytes of {@code src} into {@code dst} with the default
+     * kernel, using absolute indices. The buffer positions are not changed.
+     */
+    public static void xor(ByteBuffer src, int srcIndex, ByteBuffer dst, int dstIndex, int length, byte keyByte) {
+        defaultKernel.apply(src, srcIndex, dst, dstIndex, length, keyByte);
+    }
+
+    // ===================== PRIVATE CLASSES ===================== //
+
+    private static class ScalarKernel implements Kernel {
+        @Override
+        public void apply(byte[] src, int srcOffset, byte[] dst, int dstOffset, int length, byte keyByte) {
+            for (int i = 0; i < length; i++) {
+                dst[dstOffset + i] = (byte) ((src[srcOffset + i] ^ keyByte) & 0xFF); // XOR-based swapping using only the key length
+            }
+        }
+
+        @Override
+        public void apply(ByteBuffer src, int srcIndex, ByteBuffer dst, int dstIndex, int length, byte keyByte) {
+            for (int i = 0; i < length; i++) {
+                dst.put(dstIndex + i, (byte) ((src.get(srcIndex + i) ^ keyByte) & 0xFF));
+            }
+        }
+    }
+
+    private static class WideKernel implements Kernel {
+        private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class,
+                ByteOrder.nativeOrder());
+
+        @Override
+        public void apply(byte[] src, int srcOffset, byte[] dst, int dstOffset, int length, byte keyByte) {
+            long pattern = broadcast(keyByte);
+            int i = 0;
+            for (; i <= length - Long.BYTES; i += Long.BYTES) {
+                long value = (long) LONG_VIEW.get(src, srcOffset + i);
+                LONG_VIEW.set(dst, dstOffset + i, value ^ pattern);
+            }
+            SCALAR.apply(src, srcOffset + i, dst, dstOffset + i, length - i, keyByte);
+        }
+
+        @Override
+        public void apply(ByteBuffer src, int srcIndex, ByteBuffer dst, int dstIndex, int length, byte keyByte) {
+            if (src.hasArray() && dst.hasArray()) {
+                apply(src.array(), src.arrayOffset() + srcIndex, dst.array(), dst.arrayOffset() + dstIndex, length,
+                        keyByte);
+                return;
+            }
+            // The pattern repeats the same byte, so the buffer byte order does not matter
+            long pattern = broadcast(keyByte);
+            int i = 0;
+            for (; i <= length - Long.BYTES; i += Long.BYTES) {
+                dst.putLong(dstIndex + i, src.getLong(srcIndex + i) ^ pattern);
+            }
+            SCALAR.apply(src, srcIndex + i, dst, dstIndex + i, length - i, keyByte);
+        }
+
+        private static long broadcast(byte keyByte) {
+            return 0x0101010101010101L * (keyByte & 0xFF);
+        }
+    }
+
+    // ===================== PUBLIC ENUM ===================== //
+
+    public interface Kernel {
+        void apply(byte[] src, int srcOffset, byte[] dst, int dstOffset, int length, byte keyByte);
+
+        void apply(ByteBuffer src, int srcIndex, ByteBuffer dst, int dstIndex, int length, byte keyByte);
+    }
+}
@@ -0,0 +1,162 @@
+package com.shibbeeventures.shibbeeofficialmovies.cipher.chunked;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javax.crypto.Mac;
+
+import com.shibbeeventures.annotations.NonNull;
+import com.shibbeeventures.annotations.Nullable;
+import com.shibbeeventures.utils.SomzFileBufferPool;
+import com.shibbeeventures.utils.Utils;
+
+/**
+ * A read-only {@link SeekableByteChannel} over a version 2 chunked container,
+ * in plaintext coordinates. A read only verifies and decrypts the chunks it
+ * touches, and the last decrypted chunk is kept for the reads that follow.
+ */
+public class SomzFileChunkedChannel implements SeekableByteChannel {
+    private static final int sizeOfEncKey = 32;
+    private final FileChannel fileChannel;
+    private final SomzFileChunkedHeader header;
+    private final SomzFileChunkedCrypto crypto;
+    private final Mac mac;
+    private final ByteBuffer entry = ByteBuffer.allocate(SomzFileChunkedHeader.sizeOfIndexEntry);
+    private @Nullable SomzFileBufferPool.Lease lease;
+    private long chunkIndex = -1;
+    private long position;
+
+    public SomzFileChunkedChannel(@NonNull String inputFile, @NonNull String encKey) throws IOException {
+        this(FileChannel.open(Path.of(inputFile), StandardOpenOption.READ), encKey);
+    }
+
+    /**
+     * Wraps an already opened channel. The channel is closed when this channel is
+     * closed, or if its header cannot be read or the container is truncated.
+     */
+    public SomzFileChunkedChannel(@NonNull FileChannel fileChannel, @NonNull String encKey) throws IOException {
+        this.fileChannel = fileChannel;
+        try {
+            if (encKey.isEmpty() || encKey.length() != sizeOfEncKey) {
+                throw new IOException("The key must be non-empty and exactly 32 bytes in length.");
+            }
+            this.header = SomzFileChunkedCipher.readHeader(fileChannel, encKey.getBytes());
+            if (fileChannel.size() != header.getContainerSize()) {
+                throw new IOException("The container is truncated or has trailing data.");
+            }
+            this.crypto = new SomzFileChunkedCrypto(encKey.getBytes(), header.getFileId());
+            this.mac = crypto.newMac();
+        } catch (IOException | RuntimeException exception) {
+            fileChannel.close();
+            throw exception;
+        }
+    }
+
+    public SomzFileChunkedHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * @throws IOException If a chunk read is corrupted
+     */
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        ensureOpen();
+        if (position >= header.getLength()) {
+            return -1;
+        }
+        int bytesRead = 0;
+        while (dst.hasRemaining() && position < header.getLength()) {
+            ByteBuffer chunk = loadChunk(position / header.getSizeOfChunk());
+            int offset = (int) (position % header.getSizeOfChunk());
+            int length = Math.min(dst.remaining(), chunk.limit() - offset);
+            dst.put(chunk.duplicate().position(offset).limit(offset + length));
+            position += length;
+            bytesRead += length;
+        }
+        return bytesRead;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long position() throws IOException {
+        ensureOpen();
+        return position;
+    }
+
+    @Override
+    public SeekableByteChannel position(long newPosition) throws IOException {
+        ensureOpen();
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("Position must not be negative.");
+        }
+        this.position = newPosition;
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return header.getLength();
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) throws IOException {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return fileChannel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (Utils.notNull(lease)) {
+            lease.close();
+            lease = null;
+        }
+        fileChannel.close();
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    private void ensureOpen() throws IOException {
+        if (!fileChannel.isOpen()) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    /**
+     * Returns chunk {@code index}, verified and decrypted, from position 0 to its
+     * length.
+     */
+    private ByteBuffer loadChunk(long index) throws IOException {
+        if (Utils.isNull(lease)) {
+            lease = SomzFileBufferPool.getShared().acquire(header.getSizeOfChunk());
+        }
+        ByteBuffer chunk = lease.buffer();
+        if (chunkIndex != index) {
+            chunkIndex = -1; // Not valid until it is verified
+            chunk.clear().limit(header.getChunkLength(index));
+            SomzFileChunkedCipher.readFully(fileChannel, chunk, header.getChunkPosition(index));
+            chunk.flip();
+            entry.clear();
+            SomzFileChunkedCipher.readFully(fileChannel, entry, header.getIndexPosition(index));
+            entry.flip();
+            crypto.open(mac, index, index == header.getChunkCount() - 1, chunk, entry);
+            chunkIndex = index;
+        }
+        return chunk;
+    }
+}
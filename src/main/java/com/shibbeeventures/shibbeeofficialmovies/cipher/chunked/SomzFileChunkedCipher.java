@@ -0,0 +1,301 @@
+package com.shibbeeventures.shibbeeofficialmovies.cipher.chunked;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.LongConsumer;
+
+import javax.crypto.Mac;
+
+import com.shibbeeventures.annotations.NonNull;
+import com.shibbeeventures.annotations.Nullable;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileProgressListener;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileProgressTracker;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.header.SomzFileHeaderCache;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.header.SomzFileHeaderCipher;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.header.SomzFileHeaderKey;
+import com.shibbeeventures.utils.SomzFileBufferPool;
+import com.shibbeeventures.utils.Utils;
+
+/**
+ * Encrypts files into version 2 chunked containers, see
+ * {@link SomzFileChunkedHeader}. Every chunk is encrypted and authenticated on
+ * its own, so chunks can be processed in parallel, any chunk can be decrypted
+ * without the others, and corruption is detected per chunk.
+ *
+ * <p>
+ * Decryption also accepts version 1 files written by
+ * {@link SomzFileHeaderCipher}, which are not authenticated.
+ * </p>
+ */
+public class SomzFileChunkedCipher {
+    public static final int defaultSizeOfChunk = 1048576; // 1MB chunks
+    private static final int sizeOfEncKey = 32;
+    private static final int chunksOfParallelRange = 16; // Process 16 chunks per parallel task
+    private final byte[] encKey;
+    private final String encKeyString;
+    private final int sizeOfChunk;
+    private @Nullable Executor executor;
+    private long progressIntervalMillis = SomzFileProgressTracker.defaultIntervalMillis;
+    private long progressByteStep;
+
+    public SomzFileChunkedCipher(@NonNull String encKey) throws IOException {
+        this(encKey, defaultSizeOfChunk);
+    }
+
+    /**
+     * @param encKey      The 32 bytes master key
+     * @param sizeOfChunk The chunk size of new containers, at least
+     *                    {@link SomzFileChunkedHeader#minSizeOfChunk} bytes
+     */
+    public SomzFileChunkedCipher(@NonNull String encKey, int sizeOfChunk) throws IOException {
+        if (encKey.isEmpty() || encKey.length() != sizeOfEncKey) {
+            throw new IOException("The key must be non-empty and exactly 32 bytes in length.");
+        } else if (sizeOfChunk < SomzFileChunkedHeader.minSizeOfChunk) {
+            throw new IllegalArgumentException("The chunk size is too small.");
+        }
+        this.encKey = encKey.getBytes();
+        this.encKeyString = encKey;
+        this.sizeOfChunk = sizeOfChunk;
+    }
+
+    /**
+     * Processes chunks concurrently on {@code executor}, or sequentially when
+     * {@code executor} is null. The progress listener is never called
+     * concurrently.
+     */
+    public void setExecutor(@Nullable Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Sets how often progress listeners are called: at most once per
+     * {@code intervalMillis}, or after every {@code byteStep} bytes. The final
+     * progress is always reported.
+     */
+    public void setProgressCoalescing(long intervalMillis, long byteStep) {
+        this.progressIntervalMillis = intervalMillis;
+        this.progressByteStep = byteStep;
+    }
+
+    /**
+     * Returns true if {@code inputFile} is a version 2 chunked container.
+     */
+    public static boolean isChunked(@NonNull String inputFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(inputFile), StandardOpenOption.READ)) {
+            return SomzFileChunkedHeader.isChunked(channel);
+        }
+    }
+
+    /**
+     * Opens a read-only, seekable plaintext view of a version 2 container or a
+     * version 1 header cipher file.
+     *
+     * @param headerCache Caches version 1 headers, or null
+     */
+    public static SeekableByteChannel openChannel(@NonNull Path inputFile, @NonNull String encKey,
+            @Nullable SomzFileHeaderCache headerCache) throws IOException {
+        return openChannel(inputFile, new SomzFileHeaderKey(encKey, headerCache));
+    }
+
+    /**
+     * Opens a read-only, seekable plaintext view of a version 2 container or a
+     * version 1 header cipher file with a shared key. Version 1 headers are
+     * cached in the header cache of {@code key}.
+     */
+    public static SeekableByteChannel openChannel(@NonNull Path inputFile, @NonNull SomzFileHeaderKey key)
+            throws IOException {
+        FileChannel channel = FileChannel.open(inputFile, StandardOpenOption.READ);
+        boolean isChunked;
+        try {
+            isChunked = SomzFileChunkedHeader.isChunked(channel);
+        } catch (IOException exception) {
+            channel.close();
+            throw exception;
+        }
+        if (isChunked) {
+            return new SomzFileChunkedChannel(channel, key.getEncKey());
+        }
+        return key.openReader(channel, inputFile);
+    }
+
+    public void encryptFile(@NonNull String inputFile, @NonNull String outputFile,
+            @Nullable SomzFileProgressListener progressListener) throws IOException {
+        try (FileChannel in = FileChannel.open(Path.of(inputFile), StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(Path.of(outputFile), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            SomzFileChunkedHeader header = SomzFileChunkedHeader.create(sizeOfChunk, in.size());
+            SomzFileChunkedCrypto crypto = new SomzFileChunkedCrypto(encKey, header.getFileId());
+            writeFully(out, ByteBuffer.wrap(header.encode(crypto)), 0);
+            SomzFileProgressTracker tracker = newTracker(progressListener, header.getLength());
+            processChunks(header, (first, last) -> encryptChunks(in, out, header, crypto, first, last, tracker::add));
+            // Fails if the input grew while it was encrypted, the header holds the old length
+            if (in.size() != header.getLength()) {
+                throw new IOException("The input file changed while processing.");
+            }
+        }
+    }
+
+    /**
+     * Decrypts a version 2 container, verifying every chunk, or a version 1
+     * header cipher file.
+     *
+     * @throws IOException If a chunk is corrupted, the output is then incomplete
+     */
+    public void decryptFile(@NonNull String inputFile, @NonNull String outputFile,
+            @Nullable SomzFileProgressListener progressListener) throws IOException {
+        if (!isChunked(inputFile)) {
+            decryptHeaderCipherFile(inputFile, outputFile, progressListener);
+            return;
+        }
+        try (FileChannel in = FileChannel.open(Path.of(inputFile), StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(Path.of(outputFile), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            SomzFileChunkedHeader header = readHeader(in, encKey);
+            if (in.size() != header.getContainerSize()) {
+                throw new IOException("The container is truncated or has trailing data.");
+            }
+            SomzFileChunkedCrypto crypto = new SomzFileChunkedCrypto(encKey, header.getFileId());
+            SomzFileProgressTracker tracker = newTracker(progressListener, header.getLength());
+            processChunks(header, (first, last) -> decryptChunks(in, out, header, crypto, first, last, tracker::add));
+        }
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    static SomzFileChunkedHeader readHeader(FileChannel in, byte[] encKey) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SomzFileChunkedHeader.sizeOfHeader);
+        readFully(in, buffer, 0);
+        return SomzFileChunkedHeader.decode(buffer.array(), encKey);
+    }
+
+    static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position() - start) == -1) {
+                throw new EOFException("The container is truncated.");
+            }
+        }
+    }
+
+    static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position() - start);
+        }
+    }
+
+    private void decryptHeaderCipherFile(String inputFile, String outputFile,
+            @Nullable SomzFileProgressListener progressListener) throws IOException {
+        SomzFileHeaderCipher cipher = new SomzFileHeaderCipher(encKeyString);
+        cipher.setProgressCoalescing(progressIntervalMillis, progressByteStep);
+        try {
+            cipher.openFiles(inputFile, outputFile);
+            cipher.setProcess(false);
+            cipher.readHeaderFromInput();
+            cipher.decryptInput(progressListener);
+        } finally {
+            cipher.close();
+        }
+    }
+
+    /**
+     * Runs {@code range} over all chunks, split into ranges of
+     * {@link #chunksOfParallelRange} chunks on the executor, if there is one.
+     */
+    private void processChunks(SomzFileChunkedHeader header, ChunkRange range) throws IOException {
+        long chunkCount = header.getChunkCount();
+        if (Utils.isNull(executor)) {
+            range.process(0, chunkCount);
+            return;
+        }
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (long first = 0; first < chunkCount; first += chunksOfParallelRange) {
+            long rangeFirst = first;
+            long rangeLast = Math.min(chunkCount, first + chunksOfParallelRange);
+            tasks.add(CompletableFuture.runAsync(() -> {
+                try {
+                    range.process(rangeFirst, rangeLast);
+                } catch (IOException exception) {
+                    throw new CompletionException(exception);
+                }
+            }, executor));
+        }
+        try {
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Encrypts the chunks [first, last) and writes their index entries.
+     */
+    private void encryptChunks(FileChannel in, FileChannel out, SomzFileChunkedHeader header,
+            SomzFileChunkedCrypto crypto, long first, long last, LongConsumer onProcessed) throws IOException {
+        Mac mac = crypto.newMac();
+        ByteBuffer entries = ByteBuffer.allocate((int) (last - first) * SomzFileChunkedHeader.sizeOfIndexEntry);
+        try (SomzFileBufferPool.Lease lease = SomzFileBufferPool.getShared().acquire(sizeOfChunk)) {
+            ByteBuffer chunk = lease.buffer();
+            for (long index = first; index < last; index++) {
+                int length = header.getChunkLength(index);
+                chunk.clear().limit(length);
+                readFully(in, chunk, index * sizeOfChunk);
+                chunk.flip();
+                crypto.seal(mac, index, index == header.getChunkCount() - 1, chunk, entries);
+                writeFully(out, chunk, header.getChunkPosition(index));
+                onProcessed.accept(length);
+            }
+        }
+        writeFully(out, entries.flip(), header.getIndexPosition(first));
+    }
+
+    /**
+     * Verifies and decrypts the chunks [first, last).
+     */
+    private void decryptChunks(FileChannel in, FileChannel out, SomzFileChunkedHeader header,
+            SomzFileChunkedCrypto crypto, long first, long last, LongConsumer onProcessed) throws IOException {
+        Mac mac = crypto.newMac();
+        ByteBuffer entries = ByteBuffer.allocate((int) (last - first) * SomzFileChunkedHeader.sizeOfIndexEntry);
+        readFully(in, entries, header.getIndexPosition(first));
+        entries.flip();
+        try (SomzFileBufferPool.Lease lease = SomzFileBufferPool.getShared().acquire(sizeOfChunkOf(header))) {
+            ByteBuffer chunk = lease.buffer();
+            for (long index = first; index < last; index++) {
+                int length = header.getChunkLength(index);
+                chunk.clear().limit(length);
+                readFully(in, chunk, header.getChunkPosition(index));
+                chunk.flip();
+                crypto.open(mac, index, index == header.getChunkCount() - 1, chunk, entries);
+                writeFully(out, chunk, index * header.getSizeOfChunk());
+                onProcessed.accept(length);
+            }
+        }
+    }
+
+    private static int sizeOfChunkOf(SomzFileChunkedHeader header) {
+        return (int) Math.min(header.getSizeOfChunk(), Math.max(header.getLength(), 1));
+    }
+
+    private SomzFileProgressTracker newTracker(@Nullable SomzFileProgressListener progressListener,
+            long bytesTotal) {
+        return new SomzFileProgressTracker(progressListener, bytesTotal, progressIntervalMillis, progressByteStep);
+    }
+
+    private interface ChunkRange {
+        void process(long first, long last) throws IOException;
+    }
+}
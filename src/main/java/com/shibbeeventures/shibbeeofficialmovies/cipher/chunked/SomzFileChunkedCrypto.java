@@ -0,0 +1,120 @@
+package com.shibbeeventures.shibbeeofficialmovies.cipher.chunked;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileCipherKey;
+
+/**
+ * The per-file keys of a chunked container and the chunk seal and open
+ * operations. Chunks are encrypted with AES-CTR under a random nonce and
+ * authenticated with HMAC-SHA256 (encrypt-then-MAC). The tag covers the chunk
+ * index, its length and whether it is the last chunk, so chunks cannot be
+ * reordered, truncated or dropped unnoticed.
+ */
+class SomzFileChunkedCrypto {
+    private static final String MAC = "HmacSHA256";
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+    private final SomzFileCipherKey encKey;
+    private final SecretKeySpec macKey;
+
+    /**
+     * Derives the encryption and MAC keys of the file {@code fileId} from the
+     * master key, so no two files share a key.
+     */
+    SomzFileChunkedCrypto(byte[] masterKey, byte[] fileId) {
+        this.encKey = SomzFileCipherKey.aesCtr(derive(masterKey, "somzfile-v2-enc", fileId));
+        this.macKey = new SecretKeySpec(derive(masterKey, "somzfile-v2-mac", fileId), MAC);
+    }
+
+    /**
+     * Returns a MAC for the calling thread. A MAC is not thread-safe.
+     */
+    Mac newMac() throws IOException {
+        try {
+            Mac mac = Mac.getInstance(MAC);
+            mac.init(macKey);
+            return mac;
+        } catch (GeneralSecurityException exception) {
+            throw new IOException(exception);
+        }
+    }
+
+    byte[] headerTag(byte[] header) {
+        try {
+            Mac mac = newMac();
+            mac.update(header, 0, SomzFileChunkedHeader.sizeOfAuthenticated);
+            return mac.doFinal();
+        } catch (IOException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Encrypts {@code chunk} in place, from its position to its limit, and puts
+     * its nonce and tag into {@code entry}.
+     */
+    void seal(Mac mac, long index, boolean isLast, ByteBuffer chunk, ByteBuffer entry) throws IOException {
+        byte[] nonce = new byte[SomzFileChunkedHeader.sizeOfNonce];
+        SECURE_RANDOM.nextBytes(nonce);
+        try {
+            Cipher cipher = encKey.getCipher(Cipher.ENCRYPT_MODE, new IvParameterSpec(nonce));
+            cipher.doFinal(chunk.duplicate(), chunk.duplicate());
+        } catch (GeneralSecurityException exception) {
+            throw new IOException(exception);
+        }
+        entry.put(nonce).put(tag(mac, index, isLast, nonce, chunk));
+    }
+
+    /**
+     * Authenticates {@code chunk} against its index entry, then decrypts it in
+     * place, from its position to its limit.
+     *
+     * @throws IOException If the chunk or its entry is corrupted
+     */
+    void open(Mac mac, long index, boolean isLast, ByteBuffer chunk, ByteBuffer entry) throws IOException {
+        byte[] nonce = new byte[SomzFileChunkedHeader.sizeOfNonce];
+        byte[] tag = new byte[SomzFileChunkedHeader.sizeOfTag];
+        entry.get(nonce).get(tag);
+        if (!MessageDigest.isEqual(tag, tag(mac, index, isLast, nonce, chunk))) {
+            throw new IOException("Chunk " + index + " failed authentication.");
+        }
+        try {
+            Cipher cipher = encKey.getCipher(Cipher.DECRYPT_MODE, new IvParameterSpec(nonce));
+            cipher.doFinal(chunk.duplicate(), chunk.duplicate());
+        } catch (GeneralSecurityException exception) {
+            throw new IOException(exception);
+        }
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    private static byte[] tag(Mac mac, long index, boolean isLast, byte[] nonce, ByteBuffer chunk) {
+        ByteBuffer associated = ByteBuffer.allocate(Long.BYTES + Integer.BYTES + 1);
+        associated.putLong(index).putInt(chunk.remaining()).put((byte) (isLast ? 1 : 0)).flip();
+        mac.update(associated);
+        mac.update(nonce);
+        mac.update(chunk.duplicate());
+        return mac.doFinal();
+    }
+
+    private static byte[] derive(byte[] masterKey, String label, byte[] fileId) {
+        try {
+            Mac mac = Mac.getInstance(MAC);
+            mac.init(new SecretKeySpec(masterKey, MAC));
+            mac.update(label.getBytes(StandardCharsets.US_ASCII));
+            return mac.doFinal(fileId);
+        } catch (GeneralSecurityException exception) {
+            throw new IllegalStateException(MAC + " is not supported", exception);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.shibbeeventures.shibbeeofficialmovies.cipher.chunked;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import com.shibbeeventures.annotations.NonNull;
+
+/**
+ * The plaintext header of a version 2 chunked container.
+ *
+ * <p>
+ * A container is laid out as the header, the chunks at fixed offsets, and the
+ * chunk index, with one {@link #sizeOfIndexEntry} bytes entry (nonce and tag)
+ * per chunk. All values are big-endian:
+ * </p>
+ *
+ * <pre>
+ * 0   8   magic "SOMZCHK2"
+ * 8   1   major version (2)
+ * 9   1   minor version (0)
+ * 10  2   flags
+ * 12  4   chunk size
+ * 16  8   plaintext length
+ * 24  16  file id, random per file
+ * 40  32  HMAC-SHA256 of bytes 0 to 40
+ * </pre>
+ */
+public class SomzFileChunkedHeader {
+    public static final int sizeOfHeader = 72;
+    public static final int sizeOfNonce = 16;
+    public static final int sizeOfTag = 32;
+    public static final int sizeOfIndexEntry = sizeOfNonce + sizeOfTag;
+    public static final int minSizeOfChunk = 4096;
+    static final int sizeOfFileId = 16;
+    static final int sizeOfAuthenticated = 40;
+    private static final byte[] MAGIC = { 'S', 'O', 'M', 'Z', 'C', 'H', 'K', '2' };
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+    private final int sizeOfChunk;
+    private final long length;
+    private final byte[] fileId;
+
+    private SomzFileChunkedHeader(int sizeOfChunk, long length, byte[] fileId) {
+        this.sizeOfChunk = sizeOfChunk;
+        this.length = length;
+        this.fileId = fileId;
+    }
+
+    /**
+     * Creates the header of a new container with a random file id.
+     */
+    static SomzFileChunkedHeader create(int sizeOfChunk, long length) {
+        byte[] fileId = new byte[sizeOfFileId];
+        SECURE_RANDOM.nextBytes(fileId);
+        return new SomzFileChunkedHeader(sizeOfChunk, length, fileId);
+    }
+
+    /**
+     * Returns true if {@code channel} starts with the container magic.
+     */
+    public static boolean isChunked(@NonNull FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(MAGIC.length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) == -1) {
+                return false;
+            }
+        }
+        return Arrays.equals(buffer.array(), MAGIC);
+    }
+
+    public int getSizeOfChunk() {
+        return sizeOfChunk;
+    }
+
+    /**
+     * Returns the plaintext length.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    public long getChunkCount() {
+        return (length + sizeOfChunk - 1) / sizeOfChunk;
+    }
+
+    /**
+     * Returns the length of chunk {@code index}, only the last one may be short.
+     */
+    public int getChunkLength(long index) {
+        return (int) Math.min(sizeOfChunk, length - index * sizeOfChunk);
+    }
+
+    /**
+     * Returns the container position of chunk {@code index}.
+     */
+    public long getChunkPosition(long index) {
+        return sizeOfHeader + index * sizeOfChunk;
+    }
+
+    /**
+     * Returns the container position of the index entry of chunk {@code index}.
+     */
+    public long getIndexPosition(long index) {
+        return sizeOfHeader + length + index * sizeOfIndexEntry;
+    }
+
+    /**
+     * Returns the size of the whole container.
+     */
+    public long getContainerSize() {
+        return getIndexPosition(getChunkCount());
+    }
+
+    byte[] getFileId() {
+        return fileId.clone();
+    }
+
+    /**
+     * Encodes the header, authenticated with {@code crypto}.
+     */
+    byte[] encode(SomzFileChunkedCrypto crypto) {
+        ByteBuffer buffer = ByteBuffer.allocate(sizeOfHeader);
+        buffer.put(MAGIC).put((byte) 2).put((byte) 0).putShort((short) 0);
+        buffer.putInt(sizeOfChunk).putLong(length).put(fileId);
+        buffer.put(crypto.headerTag(buffer.array()));
+        return buffer.array();
+    }
+
+    /**
+     * Decodes and authenticates a header with the master key.
+     *
+     * @throws IOException If the header is not a version 2 header, or fails
+     *                     authentication, e.g. because the key is wrong
+     */
+    static SomzFileChunkedHeader decode(byte[] header, byte[] encKey) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(header);
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(magic);
+        if (header.length < sizeOfHeader || !Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a chunked container.");
+        } else if (buffer.get() != 2) {
+            throw new IOException("Unsupported container version.");
+        }
+        buffer.position(12);
+        int sizeOfChunk = buffer.getInt();
+        long length = buffer.getLong();
+        byte[] fileId = new byte[sizeOfFileId];
+        buffer.get(fileId);
+        byte[] tag = new byte[sizeOfTag];
+        buffer.get(tag);
+        SomzFileChunkedCrypto crypto = new SomzFileChunkedCrypto(encKey, fileId);
+        if (!MessageDigest.isEqual(tag, crypto.headerTag(header))) {
+            throw new IOException("The container header failed authentication.");
+        } else if (sizeOfChunk < minSizeOfChunk || length < 0) {
+            throw new IOException("Invalid header values.");
+        }
+        return new SomzFileChunkedHeader(sizeOfChunk, length, fileId);
+    }
+}
@@ -0,0 +1,305 @@
+package com.shibbeeventures.shibbeeofficialmovies.cipher.header;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.shibbeeventures.annotations.NonNull;
+import com.shibbeeventures.annotations.Nullable;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileDigest;
+import com.shibbeeventures.utils.SomzFileHexCodec;
+import com.shibbeeventures.utils.Utils;
+
+/**
+ * The decoded header of a {@link SomzFileHeaderCipher} file.
+ *
+ * <p>
+ * Version 1.1 headers use a fixed binary layout, decoded without reflection or
+ * regular expressions. All values are big-endian and the rest of the
+ * {@link SomzFileHeaderCipherBuffer#sizeOfHeader} bytes is reserved for future
+ * fields and left zero:
+ * </p>
+ *
+ * <pre>
+ * 0   4  magic "SOMZ"
+ * 4   1  major version (1)
+ * 5   1  minor version (1)
+ * 6   2  flags
+ * 8   4  position
+ * 12  4  keysize
+ * 16  8  time
+ * 24  16 MD5 of the plaintext, if flag 0x1 is set
+ * 40  32 SHA-256 of the plaintext, if flag 0x2 is set
+ * </pre>
+ *
+ * <p>
+ * Version 1.0 headers are null-padded JSON objects and stay readable. They
+ * carry no digests.
+ * </p>
+ */
+public class SomzFileHeader {
+    public static final String VERSION_JSON = "1.0";
+    public static final String VERSION_BINARY = "1.1";
+    private static final byte[] MAGIC = { 'S', 'O', 'M', 'Z' };
+    private static final int OFFSET_VERSION = 4;
+    private static final int OFFSET_FLAGS = 6;
+    private static final int OFFSET_POSITION = 8;
+    private static final int OFFSET_KEYSIZE = 12;
+    private static final int OFFSET_TIME = 16;
+    private static final int OFFSET_MD5 = 24;
+    private static final int OFFSET_SHA256 = 40;
+    private final String version;
+    private final int flags;
+    private final int position;
+    private final int keysize;
+    private final long time;
+    private final byte keyByte;
+    private final Map<SomzFileDigest.Algorithm, byte[]> digests;
+
+    /**
+     * @throws IllegalArgumentException If {@code version} is neither
+     *                                  {@link #VERSION_JSON} nor
+     *                                  {@link #VERSION_BINARY}
+     */
+    public SomzFileHeader(@NonNull String version, int position, int keysize, long time) {
+        this(version, 0, position, keysize, time, new EnumMap<>(SomzFileDigest.Algorithm.class));
+    }
+
+    private SomzFileHeader(String version, int flags, int position, int keysize, long time,
+            Map<SomzFileDigest.Algorithm, byte[]> digests) {
+        if (!isSupported(version)) {
+            throw new IllegalArgumentException("Unsupported header version " + version + ".");
+        }
+        this.version = version;
+        this.flags = flags;
+        this.position = position;
+        this.keysize = keysize;
+        this.time = time;
+        this.keyByte = keysize > 0 && position >= 0 ? SomzFileHeaderCipherBuffer.keyByteOf(position, keysize) : 0;
+        this.digests = digests;
+    }
+
+    /**
+     * Creates the header of a new file, with a random position and keysize.
+     *
+     * @throws IllegalArgumentException If {@code version} is not supported
+     */
+    public static SomzFileHeader create(@NonNull String version) {
+        int position = ThreadLocalRandom.current().nextInt(1000, 9001); // Adjusted to include 9000
+        int keysize = ThreadLocalRandom.current().nextInt(10000, 20001); // Adjusted to include 20000
+        return new SomzFileHeader(version, position, keysize, System.currentTimeMillis());
+    }
+
+    /**
+     * Returns a copy of this header that records the finished digests of
+     * {@code digest}.
+     *
+     * @throws IllegalStateException If this is a JSON header, which has no room
+     *                               for digests
+     */
+    public SomzFileHeader withDigests(@NonNull SomzFileDigest digest) {
+        if (!isBinary()) {
+            throw new IllegalStateException("Version " + version + " headers cannot record digests.");
+        }
+        int digestFlags = flags;
+        Map<SomzFileDigest.Algorithm, byte[]> recorded = new EnumMap<>(SomzFileDigest.Algorithm.class);
+        recorded.putAll(digests);
+        for (SomzFileDigest.Algorithm algorithm : digest.getAlgorithms()) {
+            byte[] value = digest.getDigest(algorithm);
+            if (Utils.notNull(value)) {
+                recorded.put(algorithm, value);
+                digestFlags |= flagOf(algorithm);
+            }
+        }
+        return new SomzFileHeader(version, digestFlags, position, keysize, time, recorded);
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public int getKeysize() {
+        return keysize;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public boolean isBinary() {
+        return VERSION_BINARY.equals(version);
+    }
+
+    /**
+     * Returns the plaintext digest recorded for {@code algorithm}, or null.
+     */
+    public @Nullable byte[] getDigest(@NonNull SomzFileDigest.Algorithm algorithm) {
+        byte[] value = digests.get(algorithm);
+        return Utils.notNull(value) ? value.clone() : null;
+    }
+
+    /**
+     * Returns every recorded plaintext digest.
+     */
+    public Map<SomzFileDigest.Algorithm, byte[]> getDigests() {
+        Map<SomzFileDigest.Algorithm, byte[]> copy = new EnumMap<>(SomzFileDigest.Algorithm.class);
+        digests.forEach((algorithm, value) -> copy.put(algorithm, value.clone()));
+        return Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * Returns the single byte every data byte is XORed with.
+     */
+    public byte getKeyByte() {
+        return keyByte;
+    }
+
+    /**
+     * Returns the header as the string map the JSON headers were read into.
+     */
+    public HashMap<String, String> toMap() {
+        HashMap<String, String> map = new HashMap<>();
+        map.put("position", String.valueOf(position));
+        map.put("keysize", String.valueOf(keysize));
+        map.put("version", version);
+        map.put("time", String.valueOf(time));
+        digests.forEach((algorithm, value) -> map.put(algorithm.name().toLowerCase(),
+                SomzFileHexCodec.encode(value, false)));
+        return map;
+    }
+
+    /**
+     * Encodes the plaintext header, {@link SomzFileHeaderCipherBuffer#sizeOfHeader}
+     * bytes long, in the layout of its version.
+     */
+    public byte[] encode() {
+        byte[] header = new byte[SomzFileHeaderCipherBuffer.sizeOfHeader];
+        if (isBinary()) {
+            ByteBuffer buffer = ByteBuffer.wrap(header);
+            buffer.put(MAGIC);
+            String[] numbers = version.split("\\.");
+            buffer.put(OFFSET_VERSION, Byte.parseByte(numbers[0]));
+            buffer.put(OFFSET_VERSION + 1, Byte.parseByte(numbers[1]));
+            buffer.putShort(OFFSET_FLAGS, (short) flags);
+            buffer.putInt(OFFSET_POSITION, position);
+            buffer.putInt(OFFSET_KEYSIZE, keysize);
+            buffer.putLong(OFFSET_TIME, time);
+            digests.forEach((algorithm, value) -> buffer.put(offsetOf(algorithm), value));
+        } else {
+            byte[] json = new Gson().toJson(toMap()).getBytes();
+            System.arraycopy(json, 0, header, 0, Math.min(json.length, header.length));
+        }
+        return header;
+    }
+
+    /**
+     * Decodes a decrypted header in either layout.
+     *
+     * @throws IOException If the header is neither a binary nor a JSON header, its
+     *                     version is not {@link #VERSION_BINARY} or
+     *                     {@link #VERSION_JSON} respectively, or a field is
+     *                     missing or out of range
+     */
+    public static SomzFileHeader decode(@NonNull byte[] header) throws IOException {
+        SomzFileHeader decoded = decodeComplete(header);
+        if (Utils.isNull(decoded)) {
+            throw new IOException("The header is missing required fields or has invalid values.");
+        }
+        return decoded;
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    /**
+     * Decodes a decrypted header in either layout, or returns null if a field is
+     * missing or out of range, as the JSON header maps were.
+     */
+    static @Nullable SomzFileHeader decodeComplete(byte[] header) throws IOException {
+        SomzFileHeader decoded;
+        if (isBinary(header)) {
+            ByteBuffer buffer = ByteBuffer.wrap(header);
+            String version = (header[OFFSET_VERSION] & 0xFF) + "." + (header[OFFSET_VERSION + 1] & 0xFF);
+            if (!VERSION_BINARY.equals(version)) {
+                throw new IOException("Unsupported header version " + version + ".");
+            }
+            int flags = buffer.getShort(OFFSET_FLAGS) & 0xFFFF;
+            Map<SomzFileDigest.Algorithm, byte[]> digests = new EnumMap<>(SomzFileDigest.Algorithm.class);
+            for (SomzFileDigest.Algorithm algorithm : SomzFileDigest.Algorithm.values()) {
+                if ((flags & flagOf(algorithm)) != 0) {
+                    byte[] value = new byte[algorithm.getSize()];
+                    buffer.get(offsetOf(algorithm), value);
+                    digests.put(algorithm, value);
+                }
+            }
+            decoded = new SomzFileHeader(version, flags, buffer.getInt(OFFSET_POSITION), buffer.getInt(OFFSET_KEYSIZE),
+                    buffer.getLong(OFFSET_TIME), digests);
+        } else if (header.length > 0 && header[0] == '{') {
+            decoded = decodeJson(header);
+        } else {
+            throw new IOException("Unknown header format.");
+        }
+        if (Utils.isNull(decoded) || decoded.position < 0 || decoded.keysize <= 0) {
+            return null;
+        }
+        return decoded;
+    }
+
+    static boolean isSupported(String version) {
+        return VERSION_JSON.equals(version) || VERSION_BINARY.equals(version);
+    }
+
+    private static int flagOf(SomzFileDigest.Algorithm algorithm) {
+        return algorithm == SomzFileDigest.Algorithm.MD5 ? 0x1 : 0x2;
+    }
+
+    private static int offsetOf(SomzFileDigest.Algorithm algorithm) {
+        return algorithm == SomzFileDigest.Algorithm.MD5 ? OFFSET_MD5 : OFFSET_SHA256;
+    }
+
+    private static boolean isBinary(byte[] header) {
+        if (header.length < OFFSET_TIME + Long.BYTES) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static @Nullable SomzFileHeader decodeJson(byte[] header) throws IOException {
+        int length = header.length;
+        while (length > 0 && header[length - 1] == 0) {
+            length--; // Remove trailing null characters
+        }
+        try {
+            Type type = new TypeToken<HashMap<String, String>>() {
+            }.getType();
+            Map<String, String> map = new Gson().fromJson(new String(header, 0, length, StandardCharsets.UTF_8), type);
+            if (map != null && map.containsKey("position") && map.containsKey("version") && map.containsKey("time")
+                    && map.containsKey("keysize")) {
+                if (!VERSION_JSON.equals(map.get("version"))) {
+                    throw new IOException("Unsupported header version " + map.get("version") + ".");
+                }
+                return new SomzFileHeader(map.get("version"), Integer.parseInt(map.get("position")),
+                        Integer.parseInt(map.get("keysize")), Long.parseLong(map.get("time")));
+            }
+        } catch (RuntimeException exception) {
+            throw new IOException(exception);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,217 @@
+package com.shibbeeventures.shibbeeofficialmovies.cipher.header;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.shibbeeventures.annotations.NonNull;
+import com.shibbeeventures.annotations.Nullable;
+
+/**
+ * A bounded, thread-safe LRU cache of decrypted {@link SomzFileHeader}s.
+ * Entries are keyed by the file path, size and last modified time together with
+ * a SHA-256 digest of the key the header was decrypted with, so a file that is
+ * rewritten or read with another key is never served a stale header, and the
+ * cache holds no key material. Headers are loaded outside the lock, so
+ * concurrent misses on the same file may load it more than once.
+ */
+public class SomzFileHeaderCache {
+    public static final int defaultCapacity = 256;
+    private static final int sizeOfHeader = SomzFileHeaderCipherBuffer.sizeOfHeader;
+    private static final SomzFileHeaderCache shared = new SomzFileHeaderCache(defaultCapacity);
+    private final LinkedHashMap<Key, SomzFileHeader> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private int capacity;
+
+    public SomzFileHeaderCache(int capacity) {
+        this.capacity = checkCapacity(capacity);
+    }
+
+    /**
+     * Returns the cache shared by all callers that do not bring their own.
+     */
+    public static SomzFileHeaderCache getShared() {
+        return shared;
+    }
+
+    /**
+     * Returns the header of {@code inputFile}, reading and decrypting it on a miss.
+     */
+    public SomzFileHeader get(@NonNull Path inputFile, @NonNull byte[] encKey) throws IOException {
+        return get(inputFile, encKey, () -> readHeader(inputFile, encKey));
+    }
+
+    /**
+     * Returns the header of {@code inputFile}, calling {@code loader} on a miss.
+     * Callers that already have the file open can read the header through their
+     * own handle.
+     */
+    public SomzFileHeader get(@NonNull Path inputFile, @NonNull byte[] encKey, @NonNull Loader loader)
+            throws IOException {
+        Key key = keyOf(inputFile, encKey);
+        SomzFileHeader header;
+        synchronized (entries) {
+            header = entries.get(key);
+        }
+        if (header != null) {
+            hits.incrementAndGet();
+            return header;
+        }
+        misses.incrementAndGet();
+        header = loader.load();
+        synchronized (entries) {
+            entries.put(key, header);
+            evict();
+        }
+        return header;
+    }
+
+    /**
+     * Removes every entry of {@code inputFile}, whatever its size, time or key.
+     */
+    public void invalidate(@NonNull Path inputFile) {
+        Path path = inputFile.toAbsolutePath().normalize();
+        synchronized (entries) {
+            entries.keySet().removeIf(key -> key.path.equals(path));
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Sets the maximum number of entries, evicting the least recently used ones
+     * if the cache is over the new capacity.
+     */
+    public void setCapacity(int capacity) {
+        synchronized (entries) {
+            this.capacity = checkCapacity(capacity);
+            evict();
+        }
+    }
+
+    public int getCapacity() {
+        synchronized (entries) {
+            return capacity;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    private static int checkCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        return capacity;
+    }
+
+    private static Key keyOf(Path inputFile, byte[] encKey) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(inputFile, BasicFileAttributes.class);
+        return new Key(inputFile.toAbsolutePath().normalize(), attributes.size(), attributes.lastModifiedTime(),
+                digestOf(encKey));
+    }
+
+    private static byte[] digestOf(byte[] encKey) throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(encKey);
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IOException(exception);
+        }
+    }
+
+    private static SomzFileHeader readHeader(Path inputFile, byte[] encKey) throws IOException {
+        try (FileChannel channel = FileChannel.open(inputFile, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(sizeOfHeader);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, buffer.position()) == -1) {
+                    throw new EOFException("The input file is shorter than its header.");
+                }
+            }
+            return SomzFileHeaderCipherBuffer.decryptHeader(buffer.array(), encKey);
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Key, SomzFileHeader>> iterator = entries.entrySet().iterator();
+        while (entries.size() > capacity && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private static class Key {
+        private final Path path;
+        private final long size;
+        private final FileTime lastModifiedTime;
+        private final byte[] keyDigest;
+        private final int hash;
+
+        private Key(Path path, long size, FileTime lastModifiedTime, byte[] keyDigest) {
+            this.path = path;
+            this.size = size;
+            this.lastModifiedTime = lastModifiedTime;
+            this.keyDigest = keyDigest;
+            this.hash = Objects.hash(path, size, lastModifiedTime, Arrays.hashCode(keyDigest));
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object) {
+                return true;
+            } else if (!(object instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) object;
+            return size == other.size && path.equals(other.path) && lastModifiedTime.equals(other.lastModifiedTime)
+                    && Arrays.equals(keyDigest, other.keyDigest);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    // ===================== PUBLIC ENUM ===================== //
+    public interface Loader {
+        SomzFileHeader load() throws IOException;
+    }
+}
@@ -1,20 +1,29 @@
 package com.shibbeeventures.shibbeeofficialmovies.cipher.header;
 
-import java.io.File;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
-import java.util.Arrays;
+import java.nio.file.Path;
+import java.util.EnumSet;
 import java.util.HashMap;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.Set;
 
 import com.shibbeeventures.annotations.NonNull;
 import com.shibbeeventures.annotations.Nullable;
-import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileAesCtr;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileCheckpoint;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileDigest;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileMappedTransfer;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFilePipelinedTransfer;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileProgressListener;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileProgressTracker;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileXorKernel;
+import com.shibbeeventures.shibbeeofficialmovies.metrics.SomzFileMetrics;
+import com.shibbeeventures.shibbeeofficialmovies.metrics.SomzFileProbe;
+import com.shibbeeventures.utils.SomzFileBufferPool;
+import com.shibbeeventures.utils.SomzFileChunkSource;
 import com.shibbeeventures.utils.Utils;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 
 // USING A RADOM POSITION
 
@@ -23,12 +32,23 @@ public class SomzFileHeaderCipher {
     private static final int sizeOfEncKey = 32;
     private static final int sizeOfHeader = SomzFileHeaderCipherBuffer.sizeOfHeader;
     private static final int sizeOfFileChunk = 1048576; // Process 1MB at a time
+    private static final int sizeOfProgressStep = 65536; // Report in-memory progress every 64KB
     private @Nullable String inputFile;
     private @Nullable String outputFile;
     private @Nullable RandomAccessFile iraFile;
     private @Nullable RandomAccessFile oraFile;
-    private HashMap<String, String> inputHeader = new HashMap<>();
+    private @Nullable SomzFileHeader inputHeader;
+    private @Nullable SomzFileHeaderCache headerCache;
+    private @Nullable SomzFileDigest digest;
+    private Set<SomzFileDigest.Algorithm> digestAlgorithms = EnumSet.noneOf(SomzFileDigest.Algorithm.class);
+    private boolean isVerifyDigests = true;
     private boolean isEncryptProcess;
+    private String headerVersion = SomzFileHeader.VERSION_JSON;
+    private boolean isMemoryMapped;
+    private boolean isResumable;
+    private int pipelineDepth;
+    private long progressIntervalMillis = SomzFileProgressTracker.defaultIntervalMillis;
+    private long progressByteStep;
 
     public SomzFileHeaderCipher(@NonNull String encKey) throws IOException {
         if (encKey.isEmpty() || encKey.length() != sizeOfEncKey) {
@@ -47,7 +67,7 @@ public class SomzFileHeaderCipher {
             inputFile = null;
             outputFile = null;
         }
-        inputHeader = new HashMap<>();
+        inputHeader = null;
         isEncryptProcess = true;
     }
 
@@ -68,14 +88,127 @@ public class SomzFileHeaderCipher {
         this.isEncryptProcess = isEncryptProcess;
     }
 
+    /**
+     * Sets the header version of new files: {@link SomzFileHeader#VERSION_JSON},
+     * the default, which every reader understands, or
+     * {@link SomzFileHeader#VERSION_BINARY}, which only readers that know the
+     * binary layout can read. Both are always readable here.
+     *
+     * @throws IllegalArgumentException If {@code headerVersion} is neither
+     */
+    public void setHeaderVersion(@NonNull String headerVersion) {
+        if (!SomzFileHeader.isSupported(headerVersion)) {
+            throw new IllegalArgumentException("Unsupported header version " + headerVersion + ".");
+        }
+        this.headerVersion = headerVersion;
+    }
+
+    /**
+     * Looks input headers up in {@code headerCache} before reading and decrypting
+     * them, or always reads them when {@code headerCache} is null.
+     */
+    public void setHeaderCache(@Nullable SomzFileHeaderCache headerCache) {
+        this.headerCache = headerCache;
+    }
+
+    /**
+     * Computes plaintext digests with {@code algorithms} while encrypting, and
+     * records them in the header. Digests need the binary header, see
+     * {@link #setHeaderVersion(String)}. Resuming an
+     * interrupted encryption reads the already encrypted part of the input once
+     * more to hash it.
+     */
+    public void setDigests(@NonNull Set<SomzFileDigest.Algorithm> algorithms) {
+        this.digestAlgorithms = EnumSet.noneOf(SomzFileDigest.Algorithm.class);
+        this.digestAlgorithms.addAll(algorithms);
+    }
+
+    /**
+     * Checks the digests recorded in the input header while decrypting the
+     * whole input, on by default. {@link #decryptInput} then fails once the
+     * data is decrypted if it does not match.
+     */
+    public void setVerifyDigests(boolean isVerifyDigests) {
+        this.isVerifyDigests = isVerifyDigests;
+    }
+
+    /**
+     * Returns the digests of the last encrypted or decrypted plaintext, or null if
+     * none were computed.
+     */
+    public @Nullable SomzFileDigest getDigest() {
+        return digest;
+    }
+
+    /**
+     * Processes the file data through memory-mapped windows instead of a heap
+     * buffer. The output file is truncated to the processed size.
+     */
+    public void setMemoryMapped(boolean isMemoryMapped) {
+        this.isMemoryMapped = isMemoryMapped;
+    }
+
+    /**
+     * Checkpoints encryption progress to a {@link SomzFileCheckpoint} sidecar of
+     * the output file. Encrypting the same input into the same output again
+     * continues from the last checkpoint, keeping the header already written, once
+     * the output tail is verified. Resumable encryption does not use the
+     * memory-mapped mode.
+     */
+    public void setResumable(boolean isResumable) {
+        this.isResumable = isResumable;
+    }
+
+    /**
+     * Overlaps reading, transforming and writing the file data with {@code depth} chunk
+     * buffers in flight, see {@link SomzFilePipelinedTransfer}. A depth of 0 turns
+     * pipelining off. The memory-mapped mode takes precedence.
+     */
+    public void setPipelineDepth(int depth) {
+        if (depth != 0 && depth < 2) {
+            throw new IllegalArgumentException("The depth must be 0 or at least 2.");
+        }
+        this.pipelineDepth = depth;
+    }
+
+    /**
+     * Sets how often progress handlers are called: at most once per
+     * {@code intervalMillis}, or after every {@code byteStep} bytes. The final
+     * progress is always reported.
+     */
+    public void setProgressCoalescing(long intervalMillis, long byteStep) {
+        this.progressIntervalMillis = intervalMillis;
+        this.progressByteStep = byteStep;
+    }
+
     public void encryptInput(@Nullable ProgressHandler progressHandler) throws IOException {
+        encryptInput((SomzFileProgressListener) progressHandler);
+    }
+
+    public void encryptInput(@Nullable SomzFileProgressListener progressHandler) throws IOException {
         if (isEncryptProcess) {
+            if (!SomzFileHeader.VERSION_BINARY.equals(headerVersion) && !digestAlgorithms.isEmpty()) {
+                throw new IOException("Digests need the binary header version " + SomzFileHeader.VERSION_BINARY + ".");
+            }
+            digest = digestAlgorithms.isEmpty() ? null : new SomzFileDigest(digestAlgorithms);
             if (isResources()) {
-                HashMap<String, String> header = createHeader();
-                int postition = Integer.parseInt(header.get("position"));
-                int keysize = Integer.parseInt(inputHeader.get("keysize"));
-                saveHeader(header);
-                encDecFileProcess(postition, keysize, progressHandler);
+                SomzFileProbe probe = SomzFileProbe.begin(SomzFileMetrics.HEADER, SomzFileMetrics.Operation.ENCRYPT);
+                try {
+                    long sizeOfData = iraFile.length();
+                    if (isResumable) {
+                        encryptResumableFileProcess(progressHandler);
+                    } else {
+                        SomzFileHeader header = createHeader();
+                        long headerPosition = oraFile.getFilePointer();
+                        saveHeader(header);
+                        encDecFileProcess(header.getPosition(), header.getKeysize(), progressHandler);
+                        saveDigests(header, headerPosition);
+                    }
+                    probe.end(sizeOfData);
+                } catch (IOException | RuntimeException exception) {
+                    probe.fail();
+                    throw exception;
+                }
             } else {
                 throw new IOException("Files must be open.");
             }
@@ -87,13 +220,13 @@ public class SomzFileHeaderCipher {
     public HashMap<String, String> readHeaderFromInput() throws IOException {
         if (!isEncryptProcess) {
             if (isResources()) {
-                HashMap<String, String> header = readHeader();
-                if (!header.isEmpty()) {
-                    inputHeader = header;
-                    return inputHeader;
+                if (Utils.notNull(headerCache)) {
+                    inputHeader = headerCache.get(Path.of(inputFile), encKey, this::readHeader);
+                    iraFile.seek(sizeOfHeader); // A cached header was not read from the file
                 } else {
-                    throw new IOException("Failed to read the input file header.");
+                    inputHeader = readHeader();
                 }
+                return inputHeader.toMap();
             } else {
                 throw new IOException("Files must be open.");
             }
@@ -103,12 +236,31 @@ public class SomzFileHeaderCipher {
     }
 
     public void decryptInput(@Nullable ProgressHandler progressHandler) throws IOException {
+        decryptInput((SomzFileProgressListener) progressHandler);
+    }
+
+    public void decryptInput(@Nullable SomzFileProgressListener progressHandler) throws IOException {
         if (!isEncryptProcess) {
             if (isResources()) {
-                if (!inputHeader.isEmpty()) {
-                    int postition = Integer.parseInt(inputHeader.get("position"));
-                    int keysize = Integer.parseInt(inputHeader.get("keysize"));
-                    encDecFileProcess(postition, keysize, progressHandler);
+                if (Utils.notNull(inputHeader)) {
+                    // Only a decryption of the whole data can be checked against the digests
+                    boolean isVerify = isVerifyDigests && iraFile.getFilePointer() == sizeOfHeader
+                            && !inputHeader.getDigests().isEmpty();
+                    digest = isVerify ? new SomzFileDigest(inputHeader.getDigests().keySet()) : null;
+                    SomzFileProbe probe = SomzFileProbe.begin(SomzFileMetrics.HEADER,
+                            SomzFileMetrics.Operation.DECRYPT);
+                    try {
+                        long sizeOfData = Math.max(0, iraFile.length() - iraFile.getFilePointer());
+                        encDecFileProcess(inputHeader.getPosition(), inputHeader.getKeysize(), progressHandler);
+                        if (isVerify) {
+                            digest.finish();
+                            digest.verify(inputHeader.getDigests());
+                        }
+                        probe.end(sizeOfData);
+                    } catch (IOException | RuntimeException exception) {
+                        probe.fail();
+                        throw exception;
+                    }
                 } else {
                     throw new IOException("You must read input file header.");
                 }
@@ -120,31 +272,69 @@ public class SomzFileHeaderCipher {
         }
     }
 
+    /**
+     * Decrypts the next {@code length} bytes from the current input file pointer
+     * into {@code buffer}, starting at {@code offset} in the buffer.
+     * 
+     * @return The number of bytes decrypted, or -1 at the end of the file
+     */
     public int decryptPartFromInput(byte[] buffer, int offset, int length,
             @Nullable ProgressHandler progressHandler)
             throws IOException {
-        if (!isEncryptProcess) {
-            if (isResources()) {
-                if (!inputHeader.isEmpty()) {
-                    int postition = Integer.parseInt(inputHeader.get("position"));
-                    int keysize = Integer.parseInt(inputHeader.get("keysize"));
-                    byte[] rbuffer = new byte[length];
-                    int bytesRead = iraFile.read(rbuffer, offset, length);
-                    if (bytesRead == -1) {
-                        return -1;
-                    } else {
-                        byte[] dbuffer = encDecProcess(rbuffer, postition, keysize, progressHandler);
-                        System.arraycopy(dbuffer, 0, buffer, offset, bytesRead);
-                        return bytesRead;
-                    }
-                } else {
-                    throw new IOException("You must read input file header.");
-                }
-            } else {
-                throw new IOException("Files must be open.");
+        return decryptPartFromInput(buffer, offset, length, (SomzFileProgressListener) progressHandler);
+    }
+
+    public int decryptPartFromInput(byte[] buffer, int offset, int length,
+            @Nullable SomzFileProgressListener progressHandler)
+            throws IOException {
+        checkDecryptPart();
+        int bytesRead = iraFile.read(buffer, offset, length);
+        if (bytesRead == -1) {
+            return -1;
+        } else {
+            encDecProcess(buffer, offset, bytesRead, inputKeyByte(), progressHandler);
+            return bytesRead;
+        }
+    }
+
+    /**
+     * Decrypts up to {@code length} bytes starting at the plaintext
+     * {@code position} (the header is skipped) into {@code buffer}, starting at
+     * {@code offset} in the buffer. Neither the bytes before {@code position} nor
+     * the input file pointer are touched.
+     * 
+     * @return The number of bytes decrypted, or -1 if {@code position} is at or
+     *         past the end of the data
+     */
+    public int decryptPartFromInput(long position, byte[] buffer, int offset, int length,
+            @Nullable ProgressHandler progressHandler)
+            throws IOException {
+        return decryptPartFromInput(position, buffer, offset, length, (SomzFileProgressListener) progressHandler);
+    }
+
+    public int decryptPartFromInput(long position, byte[] buffer, int offset, int length,
+            @Nullable SomzFileProgressListener progressHandler)
+            throws IOException {
+        checkDecryptPart();
+        if (position < 0) {
+            throw new IOException("Position must not be negative.");
+        }
+        FileChannel inputChannel = iraFile.getChannel();
+        ByteBuffer target = ByteBuffer.wrap(buffer, offset, length);
+        long filePosition = sizeOfHeader + position;
+        int bytesRead = 0;
+        while (target.hasRemaining()) {
+            int read = inputChannel.read(target, filePosition + bytesRead);
+            if (read == -1) {
+                break;
             }
+            bytesRead += read;
+        }
+        if (bytesRead == 0 && length > 0) {
+            return -1;
         } else {
-            throw new IOException("Process must be set to decryption.");
+            encDecProcess(buffer, offset, bytesRead, inputKeyByte(), progressHandler);
+            return bytesRead;
         }
     }
 
@@ -154,114 +344,282 @@ public class SomzFileHeaderCipher {
         return Utils.nonNull(iraFile) && Utils.nonNull(oraFile);
     }
 
-    private int getRandomPositionIndex() {
-        return ThreadLocalRandom.current().nextInt(1000, 9001); // Adjusted to include 9000
+    private SomzFileHeader createHeader() {
+        return SomzFileHeader.create(headerVersion);
     }
 
-    private int getRandomKeySize() {
-        return ThreadLocalRandom.current().nextInt(10000, 20001); // Adjusted to include 20000
+    private void saveHeader(@NonNull SomzFileHeader header) throws IOException {
+        SomzFileProbe probe = SomzFileProbe.begin(SomzFileMetrics.HEADER, SomzFileMetrics.Operation.HEADER_WRITE);
+        try {
+            oraFile.write(SomzFileHeaderCipherBuffer.encryptHeader(header, encKey));
+            probe.end(sizeOfHeader);
+        } catch (IOException | RuntimeException exception) {
+            probe.fail();
+            throw exception;
+        }
+    }
+
+    /**
+     * Finishes the digests and rewrites the header at {@code headerPosition} to
+     * record them, without moving the output file pointer.
+     */
+    private void saveDigests(SomzFileHeader header, long headerPosition) throws IOException {
+        if (Utils.isNull(digest)) {
+            return;
+        }
+        digest.finish();
+        SomzFileProbe probe = SomzFileProbe.begin(SomzFileMetrics.HEADER, SomzFileMetrics.Operation.HEADER_WRITE);
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(SomzFileHeaderCipherBuffer.encryptHeader(header.withDigests(digest),
+                    encKey));
+            FileChannel outputChannel = oraFile.getChannel();
+            while (buffer.hasRemaining()) {
+                outputChannel.write(buffer, headerPosition + buffer.position());
+            }
+            probe.end(sizeOfHeader);
+        } catch (IOException | RuntimeException exception) {
+            probe.fail();
+            throw exception;
+        }
     }
 
-    private HashMap<String, String> createHeader() {
-        HashMap<String, String> map = new HashMap<>();
-        map.put("position", String.valueOf(getRandomPositionIndex()));
-        map.put("keysize", String.valueOf(getRandomKeySize()));
-        map.put("version", "1.0");
-        map.put("time", String.valueOf(System.currentTimeMillis()));
-        return map;
+    /**
+     * Adds plaintext to the digest: the source of an encryption before it is
+     * transformed, or the target of a decryption after it is.
+     */
+    private void digest(ByteBuffer plaintext, int index, int length) {
+        if (Utils.notNull(digest)) {
+            digest.update(plaintext, index, length);
+        }
     }
 
-    private void saveHeader(@NonNull HashMap<String, String> header) throws IOException {
-        Gson gson = new Gson();
-        byte[] paddedHeader = paddHeader(gson.toJson(header).getBytes());
-        byte[] ivBytes = Utils.reverse(new String(encKey)).substring(0, 16).getBytes();
+    private SomzFileHeader readHeader() throws IOException {
+        SomzFileProbe probe = SomzFileProbe.begin(SomzFileMetrics.HEADER, SomzFileMetrics.Operation.HEADER_READ);
+        byte[] buffer = new byte[sizeOfHeader];
         try {
-            byte[] encHeader = SomzFileAesCtr.encrypt(paddedHeader, encKey, ivBytes);
-            oraFile.write(encHeader);
-        } catch (Exception exception) {
-            throw new IOException(exception);
+            iraFile.readFully(buffer);
+            SomzFileHeader header = SomzFileHeaderCipherBuffer.decryptHeader(buffer, encKey);
+            probe.end(sizeOfHeader);
+            return header;
+        } catch (EOFException exception) {
+            probe.fail();
+            throw new IOException("Failed to read the input file header.", exception);
+        } catch (IOException | RuntimeException exception) {
+            probe.fail();
+            throw exception;
         }
     }
 
-    private byte[] paddHeader(byte[] jsonHeader) {
-        byte[] paddedHeader = new byte[sizeOfHeader];
-        Arrays.fill(paddedHeader, (byte) 0); // Fill with null characters
-        System.arraycopy(jsonHeader, 0, paddedHeader, 0, Math.min(jsonHeader.length, sizeOfHeader));
-        return paddedHeader;
+    private void checkDecryptPart() throws IOException {
+        if (isEncryptProcess) {
+            throw new IOException("Process must be set to decryption.");
+        } else if (!isResources()) {
+            throw new IOException("Files must be open.");
+        } else if (Utils.isNull(inputHeader)) {
+            throw new IOException("You must read input file header.");
+        }
     }
 
-    private HashMap<String, String> readHeader() throws IOException {
-        HashMap<String, String> map = new HashMap<>();
-        byte[] buffer = new byte[sizeOfHeader];
-        int bytesRead = iraFile.read(buffer);
-        if (bytesRead > 0) {
-            byte[] ivBytes = Utils.reverse(new String(encKey)).substring(0, 16).getBytes();
-            try {
-                byte[] decHeader = SomzFileAesCtr.decrypt(buffer, encKey, ivBytes);
-                String actualHeader = SomzFileHeaderCipherBuffer.trimNullPadding(new String(decHeader));
-                Gson gson = new Gson();
-                Type type = new TypeToken<HashMap<String, String>>() {
-                }.getType();
-                HashMap<String, String> hashMap = gson.fromJson(actualHeader, type);
-                if (hashMap.containsKey("position") && hashMap.containsKey("version") && hashMap.containsKey("time")
-                        && hashMap.containsKey("keysize")) {
-                    map = hashMap;
+    private byte inputKeyByte() {
+        return inputHeader.getKeyByte();
+    }
+
+    private void encDecProcess(byte[] data, int offset, int length, byte keyByte,
+            @Nullable SomzFileProgressListener progressHandler) {
+        SomzFileProgressTracker tracker = newTracker(progressHandler, length);
+        for (int start = 0; start < length; start += sizeOfProgressStep) {
+            int sizeOfStep = Math.min(sizeOfProgressStep, length - start);
+            SomzFileXorKernel.xor(data, offset + start, data, offset + start, sizeOfStep, keyByte);
+            tracker.update(start + sizeOfStep);
+        }
+    }
+
+    private void encDecFileProcess(int position, int keysize, @Nullable SomzFileProgressListener progressHandler)
+            throws IOException {
+        if (isMemoryMapped) {
+            encDecMappedFileProcess(position, keysize, progressHandler);
+            return;
+        } else if (pipelineDepth > 0) {
+            encDecPipelinedFileProcess(position, keysize, progressHandler);
+            return;
+        }
+        byte keyByte = SomzFileHeaderCipherBuffer.keyByteOf(position, keysize);
+        FileChannel inputChannel = iraFile.getChannel();
+        FileChannel outputChannel = oraFile.getChannel(); // Writes at, and moves, the output file pointer
+        long inputPosition = Math.min(iraFile.getFilePointer(), inputChannel.size());
+        try (SomzFileChunkSource source = new SomzFileChunkSource(inputChannel, inputPosition, inputChannel.size(),
+                sizeOfFileChunk, false)) {
+            SomzFileProgressTracker tracker = newTracker(progressHandler, source.size());
+            source.forEach((chunk, chunkPosition) -> {
+                int length = chunk.remaining();
+                xor(chunk, length, keyByte);
+                while (chunk.hasRemaining()) {
+                    outputChannel.write(chunk);
                 }
-            } catch (Exception exception) {
-                throw new IOException(exception);
-            }
+                tracker.update(chunkPosition + length - inputPosition);
+                return true;
+            });
+            iraFile.seek(inputPosition + source.size());
         }
-        return map;
-    }
-
-    private byte[] encDecProcess(byte[] data, int position, int keysize, @Nullable ProgressHandler progressHandler) {
-        byte[] keysizeBytes = keysizeToBytes(keysize);
-        byte[] output = new byte[data.length];
-        int sizeOfKey = keysizeBytes.length;
-        int sizeOfData = data.length;
-        for (int i = 0; i < sizeOfData; i++) {
-            int pos = position % sizeOfKey;
-            byte keyByte = keysizeBytes[pos];
-            output[i] = (byte) ((data[i] ^ keyByte) & 0xFF); // XOR-based swapping using only the key length
-            if (Utils.notNull(progressHandler) && sizeOfData > 0) {
-                double progress = ((double) (i + 1) / sizeOfData) * 100;
-                progressHandler.onProgress(String.format("%.2f", progress));
-            }
+    }
+
+    /**
+     * XORs the first {@code length} bytes of {@code chunk} in place, digesting the
+     * plaintext.
+     */
+    private void xor(ByteBuffer chunk, int length, byte keyByte) {
+        xor(chunk, chunk, length, keyByte);
+    }
+
+    /**
+     * XORs the first {@code length} bytes of {@code src} into {@code dst},
+     * digesting the plaintext.
+     */
+    private void xor(ByteBuffer src, ByteBuffer dst, int length, byte keyByte) {
+        SomzFileProbe probe = SomzFileProbe.begin(SomzFileMetrics.HEADER, SomzFileMetrics.Operation.CHUNK);
+        if (isEncryptProcess) {
+            digest(src, 0, length);
+        }
+        SomzFileXorKernel.xor(src, 0, dst, 0, length, keyByte);
+        if (!isEncryptProcess) {
+            digest(dst, 0, length);
         }
-        return output;
+        probe.end(length);
     }
 
-    private void encDecFileProcess(int position, int keysize, @Nullable ProgressHandler progressHandler)
+    private void encryptResumableFileProcess(@Nullable SomzFileProgressListener progressHandler)
             throws IOException {
-        byte[] keysizeBytes = keysizeToBytes(keysize);
-        File file = new File(inputFile);
-        long sizeOfFile = file.length();
-        long sizeOfProcessedFile = 0;
-        byte[] buffer = new byte[sizeOfFileChunk];
-        int bytesRead;
-        while ((bytesRead = iraFile.read(buffer)) != -1) {
-            byte[] chunk = Arrays.copyOf(buffer, bytesRead);
-            for (int i = 0; i < chunk.length; i++) {
-                int pos = position % keysizeBytes.length;
-                byte keyByte = keysizeBytes[pos];
-                chunk[i] = (byte) ((chunk[i] ^ keyByte) & 0xFF); // XOR-based swapping using only the key length
+        SomzFileCheckpoint checkpoint = new SomzFileCheckpoint(Path.of(inputFile), Path.of(outputFile));
+        FileChannel inputChannel = iraFile.getChannel();
+        FileChannel outputChannel = oraFile.getChannel();
+        long sizeOfData = inputChannel.size();
+        long offset = checkpoint.load();
+        SomzFileHeader header = offset > 0 ? readOutputHeader() : null;
+        if (Utils.isNull(header) || !SomzFileCheckpoint.verifyTail(inputChannel, outputChannel, sizeOfHeader, offset,
+                header.getKeyByte())) {
+            header = createHeader();
+            offset = 0;
+            oraFile.seek(0);
+            saveHeader(header);
+        }
+        byte keyByte = header.getKeyByte();
+        SomzFileProgressTracker tracker = newTracker(progressHandler, sizeOfData);
+        tracker.update(offset);
+        SomzFileBufferPool.Lease lease = SomzFileBufferPool.getShared().acquire(sizeOfFileChunk);
+        ByteBuffer buffer = lease.buffer();
+        long nextCheckpoint = offset + SomzFileCheckpoint.sizeOfCheckpointStep;
+        try (lease) {
+            if (Utils.notNull(digest)) {
+                digestInput(inputChannel, offset, buffer);
+            }
+            while (offset < sizeOfData) {
+                buffer.clear().limit((int) Math.min(sizeOfFileChunk, sizeOfData - offset));
+                while (buffer.hasRemaining()) {
+                    if (inputChannel.read(buffer, offset + buffer.position()) == -1) {
+                        throw new EOFException("The input file was truncated while processing.");
+                    }
+                }
+                int sizeOfChunk = buffer.position();
+                xor(buffer, sizeOfChunk, keyByte);
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    outputChannel.write(buffer, sizeOfHeader + offset + buffer.position());
+                }
+                offset += sizeOfChunk;
+                tracker.update(offset);
+                if (offset >= nextCheckpoint && offset < sizeOfData) {
+                    checkpoint.save(outputChannel, offset);
+                    nextCheckpoint = offset + SomzFileCheckpoint.sizeOfCheckpointStep;
+                }
+            }
+        }
+        outputChannel.truncate(sizeOfHeader + sizeOfData);
+        saveDigests(header, 0);
+        outputChannel.force(true);
+        iraFile.seek(sizeOfData);
+        oraFile.seek(sizeOfHeader + sizeOfData);
+        checkpoint.delete();
+    }
+
+    /**
+     * Digests the input range [0, {@code length}), encrypted by an earlier run.
+     */
+    private void digestInput(FileChannel inputChannel, long length, ByteBuffer buffer) throws IOException {
+        for (long offset = 0; offset < length;) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), length - offset));
+            while (buffer.hasRemaining()) {
+                if (inputChannel.read(buffer, offset + buffer.position()) == -1) {
+                    throw new EOFException("The input file was truncated while processing.");
+                }
             }
-            oraFile.write(chunk);
-            sizeOfProcessedFile += bytesRead;
-            if (Utils.notNull(progressHandler) && sizeOfFile > 0) {
-                double progress = ((double) sizeOfProcessedFile / sizeOfFile) * 100;
-                progressHandler.onProgress(String.format("%.2f", progress));
+            digest(buffer, 0, buffer.position());
+            offset += buffer.position();
+        }
+    }
+
+    /**
+     * Returns the header already written to the output file, or null if there is
+     * none that decrypts with this key.
+     */
+    private @Nullable SomzFileHeader readOutputHeader() {
+        ByteBuffer buffer = ByteBuffer.allocate(sizeOfHeader);
+        try {
+            FileChannel outputChannel = oraFile.getChannel();
+            while (buffer.hasRemaining()) {
+                if (outputChannel.read(buffer, buffer.position()) == -1) {
+                    return null;
+                }
             }
+            return SomzFileHeaderCipherBuffer.decryptHeader(buffer.array(), encKey);
+        } catch (IOException exception) {
+            return null;
         }
     }
 
-    private byte[] keysizeToBytes(int keysize) {
-        return new String(String.valueOf(keysize)).getBytes();
+    private void encDecPipelinedFileProcess(int position, int keysize,
+            @Nullable SomzFileProgressListener progressHandler) throws IOException {
+        byte keyByte = SomzFileHeaderCipherBuffer.keyByteOf(position, keysize);
+        FileChannel inputChannel = iraFile.getChannel();
+        long inputPosition = iraFile.getFilePointer();
+        long outputPosition = oraFile.getFilePointer();
+        long sizeOfData = Math.max(0, inputChannel.size() - inputPosition);
+        SomzFilePipelinedTransfer.transfer(inputChannel, inputPosition, oraFile.getChannel(), outputPosition,
+                sizeOfData, sizeOfFileChunk, pipelineDepth,
+                (chunk, offset) -> xor(chunk, chunk.limit(), keyByte),
+                newTracker(progressHandler, sizeOfData)::update);
+        iraFile.seek(inputPosition + sizeOfData);
+        oraFile.seek(outputPosition + sizeOfData);
+    }
+
+    private void encDecMappedFileProcess(int position, int keysize,
+            @Nullable SomzFileProgressListener progressHandler)
+            throws IOException {
+        byte keyByte = SomzFileHeaderCipherBuffer.keyByteOf(position, keysize);
+        FileChannel inputChannel = iraFile.getChannel();
+        FileChannel outputChannel = oraFile.getChannel();
+        long inputPosition = iraFile.getFilePointer();
+        long outputPosition = oraFile.getFilePointer();
+        long sizeOfData = Math.max(0, inputChannel.size() - inputPosition);
+        SomzFileMappedTransfer.transfer(inputChannel, inputPosition, outputChannel, outputPosition, sizeOfData,
+                (src, dst, length, offset) -> xor(src, dst, length, keyByte),
+                newTracker(progressHandler, sizeOfData)::update);
+        iraFile.seek(inputPosition + sizeOfData);
+        oraFile.seek(outputPosition + sizeOfData);
+    }
+
+    private SomzFileProgressTracker newTracker(@Nullable SomzFileProgressListener progressHandler,
+            long bytesTotal) {
+        return new SomzFileProgressTracker(progressHandler, bytesTotal, progressIntervalMillis, progressByteStep);
     }
 
     // ===================== PUBLIC ENUM ===================== //
-    public interface ProgressHandler {
+    public interface ProgressHandler extends SomzFileProgressListener {
         void onProgress(@NonNull String percentage);
+
+        @Override
+        default void onProgress(long bytesDone, long bytesTotal, double bytesPerSecond) {
+            onProgress(SomzFileProgressListener.toPercentage(bytesDone, bytesTotal));
+        }
     }
 
 }
@@ -2,58 +2,138 @@ package com.shibbeeventures.shibbeeofficialmovies.cipher.header;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.Type;
+import java.nio.file.Path;
 import java.util.HashMap;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 import com.shibbeeventures.annotations.NonNull;
 import com.shibbeeventures.annotations.Nullable;
 import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileAesCtr;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileProgressListener;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileProgressTracker;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileXorKernel;
 import com.shibbeeventures.utils.Utils;
 
 // USING A RADOM POSITION
 
 public class SomzFileHeaderCipherBuffer {
     public static final int sizeOfHeader = 200;
+    private static final int sizeOfProgressStep = 65536; // Report progress every 64KB
 
     public static byte[] encrypt(byte[] data, int position, int keysize,
             @Nullable ProgressHandler progressHandler) throws IOException {
         return encDecProcess(data, position, keysize, progressHandler);
     }
 
+    public static byte[] encrypt(byte[] data, int position, int keysize,
+            @Nullable SomzFileProgressListener progressHandler) throws IOException {
+        return encDecProcess(data, position, keysize, progressHandler);
+    }
+
     public static byte[] decrypt(byte[] data, int position, int keysize,
             @Nullable ProgressHandler progressHandler) throws IOException {
         return encDecProcess(data, position, keysize, progressHandler);
     }
 
+    public static byte[] decrypt(byte[] data, int position, int keysize,
+            @Nullable SomzFileProgressListener progressHandler) throws IOException {
+        return encDecProcess(data, position, keysize, progressHandler);
+    }
+
+    /**
+     * Reads and parses the encrypted header at the start of
+     * {@code inputStream}.
+     * 
+     * @return The header map, empty if the stream is empty or a required field is
+     *         missing or out of range
+     * @throws IOException If the header cannot be read, decrypted or parsed, or
+     *                     its version is not supported
+     */
     public static HashMap<String, String> readHeader(@NonNull InputStream inputStream, @NonNull String encKey)
             throws IOException {
-        HashMap<String, String> map = new HashMap<>();
-        byte[] buffer = new byte[sizeOfHeader];
-        int bytesRead = inputStream.read(buffer);
-        if (bytesRead > 0) {
-            byte[] ivBytes = Utils.reverse(new String(encKey)).substring(0, 16).getBytes();
-            try {
-                byte[] decHeader = SomzFileAesCtr.decrypt(buffer, encKey.getBytes(), ivBytes);
-                String actualHeader = trimNullPadding(new String(decHeader));
-                Gson gson = new Gson();
-                Type type = new TypeToken<HashMap<String, String>>() {
-                }.getType();
-                HashMap<String, String> hashMap = gson.fromJson(actualHeader, type);
-                if (hashMap.containsKey("position") && hashMap.containsKey("version") && hashMap.containsKey("time")
-                        && hashMap.containsKey("keysize")) {
-                    map = hashMap;
-                }
-            } catch (Exception exception) {
-                throw new IOException(exception);
-            }
+        byte[] buffer = inputStream.readNBytes(sizeOfHeader);
+        if (buffer.length > 0) {
+            return decodeHeader(buffer, encKey.getBytes());
+        }
+        return new HashMap<>();
+    }
+
+    /**
+     * Returns the header of {@code inputFile} from the shared
+     * {@link SomzFileHeaderCache}, reading it only when the file is not cached.
+     * 
+     * @throws IOException If the header cannot be read or decrypted, or a
+     *                     required field is missing, as headers with missing
+     *                     fields are not cached
+     */
+    public static HashMap<String, String> readHeader(@NonNull Path inputFile, @NonNull String encKey)
+            throws IOException {
+        return SomzFileHeaderCache.getShared().get(inputFile, encKey.getBytes()).toMap();
+    }
+
+    /**
+     * Decrypts and parses an encrypted header block.
+     * 
+     * @param encHeader The encrypted header, {@link #sizeOfHeader} bytes long
+     * @param encKey    The 32 bytes master key
+     * @return The header map, empty if a required field is missing or out of range
+     * @throws IOException If the header cannot be decrypted or parsed, or its
+     *                     version is not supported
+     */
+    public static HashMap<String, String> decodeHeader(@NonNull byte[] encHeader, @NonNull byte[] encKey)
+            throws IOException {
+        SomzFileHeader header = SomzFileHeader.decodeComplete(decryptBlock(encHeader, encKey));
+        return Utils.notNull(header) ? header.toMap() : new HashMap<>();
+    }
+
+    /**
+     * Decrypts an encrypted header block in either the binary or the JSON layout.
+     * 
+     * @param encHeader The encrypted header, {@link #sizeOfHeader} bytes long
+     * @param encKey    The 32 bytes master key
+     * @return The header
+     * @throws IOException If the header cannot be decrypted or a required field is
+     *                     missing
+     */
+    public static SomzFileHeader decryptHeader(@NonNull byte[] encHeader, @NonNull byte[] encKey)
+            throws IOException {
+        return SomzFileHeader.decode(decryptBlock(encHeader, encKey));
+    }
+
+    /**
+     * Encodes and encrypts a header block.
+     * 
+     * @param header The header
+     * @param encKey The 32 bytes master key
+     * @return The encrypted header, {@link #sizeOfHeader} bytes long
+     * @throws IOException
+     */
+    public static byte[] encryptHeader(@NonNull SomzFileHeader header, @NonNull byte[] encKey) throws IOException {
+        try {
+            return SomzFileAesCtr.encrypt(header.encode(), encKey, headerIv(encKey));
+        } catch (Exception exception) {
+            throw new IOException(exception);
         }
-        return map;
+    }
+
+    /**
+     * Returns the single byte every data byte is XORed with for the given header
+     * values.
+     * 
+     * @param position The header position
+     * @param keysize  The header keysize
+     * @return The key byte
+     */
+    public static byte keyByteOf(int position, int keysize) {
+        byte[] keysizeBytes = keysizeToBytes(keysize);
+        return keysizeBytes[position % keysizeBytes.length];
     }
 
     public static String trimNullPadding(@NonNull String input) {
-        return input.replaceAll("\0+$", ""); // Remove trailing null characters
+        int length = input.length();
+        while (length > 0 && input.charAt(length - 1) == '\0') {
+            length--; // Remove trailing null characters
+        }
+        return input.substring(0, length);
     }
 
     public static int getSizeOfHeader() {
@@ -63,29 +143,42 @@ public class SomzFileHeaderCipherBuffer {
     // ===================== PRIVATE METHODS ===================== //
 
     private static byte[] encDecProcess(byte[] data, int position, int keysize,
-            @Nullable ProgressHandler progressListener) {
-        byte[] keysizeBytes = keysizeToBytes(keysize);
+            @Nullable SomzFileProgressListener progressListener) {
         byte[] output = new byte[data.length];
-        int sizeOfKey = keysizeBytes.length;
+        byte keyByte = keyByteOf(position, keysize);
         int sizeOfData = data.length;
-        for (int i = 0; i < sizeOfData; i++) {
-            int pos = position % sizeOfKey;
-            byte keyByte = keysizeBytes[pos];
-            output[i] = (byte) ((data[i] ^ keyByte) & 0xFF); // XOR-based swapping using only the key length
-            if (Utils.notNull(progressListener) && sizeOfData > 0) {
-                double progress = ((double) (i + 1) / sizeOfData) * 100;
-                progressListener.onProgress(String.format("%.2f", progress));
-            }
+        SomzFileProgressTracker tracker = new SomzFileProgressTracker(progressListener, sizeOfData);
+        for (int start = 0; start < sizeOfData; start += sizeOfProgressStep) {
+            int length = Math.min(sizeOfProgressStep, sizeOfData - start);
+            SomzFileXorKernel.xor(data, start, output, start, length, keyByte);
+            tracker.update(start + length);
         }
         return output;
     }
 
+    private static byte[] decryptBlock(byte[] encHeader, byte[] encKey) throws IOException {
+        try {
+            return SomzFileAesCtr.decrypt(encHeader, encKey, headerIv(encKey));
+        } catch (Exception exception) {
+            throw new IOException(exception);
+        }
+    }
+
+    private static byte[] headerIv(byte[] encKey) {
+        return Utils.reverse(new String(encKey)).substring(0, 16).getBytes();
+    }
+
     private static byte[] keysizeToBytes(int keysize) {
         return new String(String.valueOf(keysize)).getBytes();
     }
 
     // ===================== PUBLIC ENUM ===================== //
-    public interface ProgressHandler {
+    public interface ProgressHandler extends SomzFileProgressListener {
         void onProgress(@NonNull String percentage);
+
+        @Override
+        default void onProgress(long bytesDone, long bytesTotal, double bytesPerSecond) {
+            onProgress(SomzFileProgressListener.toPercentage(bytesDone, bytesTotal));
+        }
     }
 }
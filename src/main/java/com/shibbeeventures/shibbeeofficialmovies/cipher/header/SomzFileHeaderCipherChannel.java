@@ -0,0 +1,165 @@
+package com.shibbeeventures.shibbeeofficialmovies.cipher.header;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+
+import com.shibbeeventures.annotations.NonNull;
+import com.shibbeeventures.annotations.Nullable;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileXorKernel;
+
+/**
+ * A read-only {@link SeekableByteChannel} over a file written by
+ * {@link SomzFileHeaderCipher}. Positions and sizes are in plaintext
+ * coordinates: the {@link SomzFileHeaderCipherBuffer#sizeOfHeader} bytes
+ * header is skipped, and any byte range can be decrypted without reading the
+ * bytes before it.
+ */
+public class SomzFileHeaderCipherChannel implements SeekableByteChannel {
+    private static final int sizeOfHeader = SomzFileHeaderCipherBuffer.sizeOfHeader;
+    private final FileChannel fileChannel;
+    private final SomzFileHeader header;
+    private final byte keyByte;
+    private long position;
+
+    public SomzFileHeaderCipherChannel(@NonNull String inputFile, @NonNull String encKey) throws IOException {
+        this(inputFile, encKey, null);
+    }
+
+    /**
+     * Opens {@code inputFile}, looking its header up in {@code headerCache} before
+     * reading it.
+     */
+    public SomzFileHeaderCipherChannel(@NonNull String inputFile, @NonNull String encKey,
+            @Nullable SomzFileHeaderCache headerCache) throws IOException {
+        this(new SomzFileHeaderKey(encKey, headerCache), Path.of(inputFile));
+    }
+
+    /**
+     * Wraps an already opened channel. The channel is closed when this channel is
+     * closed, or if its header cannot be read.
+     */
+    public SomzFileHeaderCipherChannel(@NonNull FileChannel fileChannel, @NonNull String encKey) throws IOException {
+        this(fileChannel, newKey(fileChannel, encKey), null);
+    }
+
+    private SomzFileHeaderCipherChannel(SomzFileHeaderKey key, Path inputFile) throws IOException {
+        this(FileChannel.open(inputFile, StandardOpenOption.READ), key, inputFile);
+    }
+
+    /**
+     * @see SomzFileHeaderKey#openReader(Path)
+     */
+    SomzFileHeaderCipherChannel(FileChannel fileChannel, SomzFileHeaderKey key, @Nullable Path inputFile)
+            throws IOException {
+        this.fileChannel = fileChannel;
+        try {
+            this.header = key.readHeader(fileChannel, inputFile);
+            this.keyByte = header.getKeyByte();
+        } catch (IOException | RuntimeException exception) {
+            fileChannel.close();
+            throw exception;
+        }
+    }
+
+    /**
+     * Returns a copy of the decrypted file header.
+     */
+    public HashMap<String, String> getHeader() {
+        return header.toMap();
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        ensureOpen();
+        long remaining = size() - position;
+        if (remaining <= 0) {
+            return -1;
+        }
+        int start = dst.position();
+        int limit = dst.limit();
+        if (dst.remaining() > remaining) {
+            dst.limit(start + (int) remaining);
+        }
+        int bytesRead;
+        try {
+            bytesRead = fileChannel.read(dst, sizeOfHeader + position);
+        } finally {
+            dst.limit(limit);
+        }
+        if (bytesRead > 0) {
+            encDecProcess(dst, start, bytesRead);
+            position += bytesRead;
+        }
+        return bytesRead;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long position() throws IOException {
+        ensureOpen();
+        return position;
+    }
+
+    @Override
+    public SeekableByteChannel position(long newPosition) throws IOException {
+        ensureOpen();
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("Position must not be negative.");
+        }
+        this.position = newPosition;
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return Math.max(0, fileChannel.size() - sizeOfHeader);
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) throws IOException {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return fileChannel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        fileChannel.close();
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    private void ensureOpen() throws IOException {
+        if (!fileChannel.isOpen()) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    private static SomzFileHeaderKey newKey(FileChannel fileChannel, String encKey) throws IOException {
+        try {
+            return new SomzFileHeaderKey(encKey);
+        } catch (IOException exception) {
+            fileChannel.close();
+            throw exception;
+        }
+    }
+
+    private void encDecProcess(ByteBuffer buffer, int offset, int length) {
+        SomzFileXorKernel.xor(buffer, offset, buffer, offset, length, keyByte);
+    }
+}
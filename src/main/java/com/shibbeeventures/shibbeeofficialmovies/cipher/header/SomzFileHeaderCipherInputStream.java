@@ -0,0 +1,119 @@
+package com.shibbeeventures.shibbeeofficialmovies.cipher.header;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+
+import com.shibbeeventures.annotations.NonNull;
+import com.shibbeeventures.utils.Utils;
+
+/**
+ * Decrypts a {@link SomzFileHeaderCipher} file as it is read from another
+ * stream, e.g. a download, in constant memory. The header is read from the
+ * wrapped stream on the first read, skip or {@link #getHeader()}, and every
+ * byte after it is decrypted as it passes through.
+ *
+ * <p>
+ * {@code skip}, {@code available} and {@code mark} count plaintext bytes.
+ * {@code mark} is supported when the wrapped stream supports it; a mark set
+ * before the header was read makes {@code reset} read the header again.
+ * </p>
+ *
+ * <p>
+ * Every file starts with its header, even one without data. A wrapped stream
+ * that ends before the header, including an empty one, is not a file, so the
+ * first read throws an {@link EOFException} instead of returning -1.
+ * </p>
+ */
+public class SomzFileHeaderCipherInputStream extends FilterInputStream {
+    private static final int sizeOfHeader = SomzFileHeaderCipherBuffer.sizeOfHeader;
+    private final SomzFileHeaderKey key;
+    private final byte[] single = new byte[1];
+    private SomzFileHeaderKey.Session session;
+    private boolean isMarkBeforeHeader;
+
+    public SomzFileHeaderCipherInputStream(@NonNull InputStream in, @NonNull String encKey) throws IOException {
+        this(in, new SomzFileHeaderKey(encKey));
+    }
+
+    public SomzFileHeaderCipherInputStream(@NonNull InputStream in, @NonNull SomzFileHeaderKey key) {
+        super(in);
+        this.key = key;
+    }
+
+    /**
+     * Returns the decrypted file header, reading it if no data was read yet.
+     */
+    public SomzFileHeader getHeader() throws IOException {
+        return ensureSession().getHeader();
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        Objects.checkFromIndexSize(offset, length, buffer.length);
+        if (length == 0) {
+            return 0;
+        }
+        SomzFileHeaderKey.Session current = ensureSession();
+        int bytesRead = in.read(buffer, offset, length);
+        if (bytesRead > 0) {
+            current.decrypt(buffer, offset, bytesRead);
+        }
+        return bytesRead;
+    }
+
+    /**
+     * Skips {@code n} plaintext bytes. Nothing is decrypted, a header cipher
+     * byte does not depend on the bytes before it.
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        ensureSession();
+        return in.skip(n);
+    }
+
+    /**
+     * Returns the plaintext bytes that can be read without blocking. Before the
+     * header is read, the header bytes the wrapped stream has are not counted.
+     */
+    @Override
+    public int available() throws IOException {
+        int available = in.available();
+        return Utils.notNull(session) ? available : Math.max(0, available - sizeOfHeader);
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        isMarkBeforeHeader = Utils.isNull(session);
+        // The header is read again after a reset, so it counts against the limit
+        in.mark(isMarkBeforeHeader ? (int) Math.min((long) readlimit + sizeOfHeader, Integer.MAX_VALUE) : readlimit);
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        in.reset();
+        if (isMarkBeforeHeader) {
+            session = null;
+        }
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    private SomzFileHeaderKey.Session ensureSession() throws IOException {
+        if (Utils.isNull(session)) {
+            byte[] encHeader = in.readNBytes(sizeOfHeader);
+            if (encHeader.length < sizeOfHeader) {
+                throw new EOFException("Failed to read the input file header.");
+            }
+            session = key.newSession(encHeader);
+        }
+        return session;
+    }
+}
@@ -0,0 +1,117 @@
+package com.shibbeeventures.shibbeeofficialmovies.cipher.header;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Objects;
+
+import com.shibbeeventures.annotations.NonNull;
+import com.shibbeeventures.shibbeeofficialmovies.metrics.SomzFileMetrics;
+import com.shibbeeventures.shibbeeofficialmovies.metrics.SomzFileProbe;
+
+/**
+ * Encrypts data into a {@link SomzFileHeaderCipher} file as it is written to
+ * another stream, e.g. an upload, in constant memory. A random header, JSON
+ * unless another version is given, is written before the first data, or on
+ * {@code close} if there is none. The caller's arrays are not modified; data is
+ * encrypted through a buffer of {@link #sizeOfBuffer} bytes.
+ *
+ * <p>
+ * The header is written before the data is known, so it records no digests.
+ * </p>
+ */
+public class SomzFileHeaderCipherOutputStream extends FilterOutputStream {
+    public static final int sizeOfBuffer = 8192;
+    private final SomzFileHeaderKey key;
+    private final SomzFileHeaderKey.Session session;
+    private final byte[] buffer = new byte[sizeOfBuffer];
+    private final byte[] single = new byte[1];
+    private boolean isHeaderWritten;
+    private boolean isClosed;
+
+    public SomzFileHeaderCipherOutputStream(@NonNull OutputStream out, @NonNull String encKey) throws IOException {
+        this(out, new SomzFileHeaderKey(encKey));
+    }
+
+    public SomzFileHeaderCipherOutputStream(@NonNull OutputStream out, @NonNull SomzFileHeaderKey key) {
+        this(out, key, SomzFileHeader.VERSION_JSON);
+    }
+
+    /**
+     * @param headerVersion The header version, see
+     *                      {@link SomzFileHeaderCipher#setHeaderVersion(String)}
+     * @throws IllegalArgumentException If {@code headerVersion} is not supported
+     */
+    public SomzFileHeaderCipherOutputStream(@NonNull OutputStream out, @NonNull SomzFileHeaderKey key,
+            @NonNull String headerVersion) {
+        super(out);
+        this.key = key;
+        this.session = key.newSession(SomzFileHeader.create(headerVersion));
+    }
+
+    /**
+     * Returns the header of the file being written.
+     */
+    public SomzFileHeader getHeader() {
+        return session.getHeader();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        single[0] = (byte) b;
+        write(single, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length) throws IOException {
+        Objects.checkFromIndexSize(offset, length, data.length);
+        ensureHeader();
+        for (int done = 0; done < length;) {
+            int count = Math.min(length - done, buffer.length);
+            session.encrypt(data, offset + done, buffer, 0, count);
+            out.write(buffer, 0, count);
+            done += count;
+        }
+    }
+
+    /**
+     * Writes the header if no data was written, then flushes and closes the
+     * wrapped stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if (isClosed) {
+            return;
+        }
+        isClosed = true;
+        try {
+            ensureHeader();
+        } catch (IOException exception) {
+            try {
+                out.close();
+            } catch (IOException closeException) {
+                exception.addSuppressed(closeException);
+            }
+            throw exception;
+        }
+        super.close();
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    private void ensureHeader() throws IOException {
+        if (isHeaderWritten) {
+            return;
+        }
+        SomzFileProbe probe = SomzFileProbe.begin(SomzFileMetrics.HEADER, SomzFileMetrics.Operation.HEADER_WRITE);
+        try {
+            byte[] encHeader = key.encryptHeader(session.getHeader());
+            out.write(encHeader);
+            isHeaderWritten = true;
+            probe.end(encHeader.length);
+        } catch (IOException | RuntimeException exception) {
+            probe.fail();
+            throw exception;
+        }
+    }
+}
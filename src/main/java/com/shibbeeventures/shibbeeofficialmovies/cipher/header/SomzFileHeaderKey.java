@@ -0,0 +1,245 @@
+package com.shibbeeventures.shibbeeofficialmovies.cipher.header;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.util.Objects;
+
+import javax.crypto.spec.IvParameterSpec;
+
+import com.shibbeeventures.annotations.NonNull;
+import com.shibbeeventures.annotations.Nullable;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileCipherKey;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileXorKernel;
+import com.shibbeeventures.shibbeeofficialmovies.metrics.SomzFileMetrics;
+import com.shibbeeventures.shibbeeofficialmovies.metrics.SomzFileProbe;
+import com.shibbeeventures.utils.Utils;
+
+/**
+ * An immutable, thread-safe master key of {@link SomzFileHeaderCipher} files.
+ * The key is checked and its header cipher prepared once; any number of
+ * threads can then open readers and sessions from one instance. Readers and
+ * sessions have no lock, need no output file and share nothing but this key.
+ *
+ * <pre>
+ * SomzFileHeaderKey key = new SomzFileHeaderKey(encKey, SomzFileHeaderCache.getShared());
+ * try (SomzFileHeaderCipherChannel reader = key.openReader(Path.of("movie.somz"))) {
+ *     reader.position(1048576).read(buffer);
+ * }
+ * </pre>
+ */
+public final class SomzFileHeaderKey {
+    private static final int sizeOfEncKey = 32;
+    private static final int sizeOfHeader = SomzFileHeaderCipherBuffer.sizeOfHeader;
+    private final String encKey;
+    private final byte[] encKeyBytes;
+    private final SomzFileCipherKey headerKey;
+    private final IvParameterSpec headerIv;
+    private final @Nullable SomzFileHeaderCache headerCache;
+
+    public SomzFileHeaderKey(@NonNull String encKey) throws IOException {
+        this(encKey, null);
+    }
+
+    /**
+     * @param encKey      The 32 bytes master key
+     * @param headerCache Caches the headers of the files opened by path, or null
+     */
+    public SomzFileHeaderKey(@NonNull String encKey, @Nullable SomzFileHeaderCache headerCache) throws IOException {
+        if (encKey.isEmpty() || encKey.length() != sizeOfEncKey) {
+            throw new IOException("The key must be non-empty and exactly 32 bytes in length.");
+        }
+        this.encKey = encKey;
+        this.encKeyBytes = encKey.getBytes();
+        this.headerKey = SomzFileCipherKey.aesCtr(encKeyBytes);
+        this.headerIv = new IvParameterSpec(Utils.reverse(new String(encKeyBytes)).substring(0, 16).getBytes());
+        this.headerCache = headerCache;
+    }
+
+    /**
+     * Returns the master key, e.g. to open version 2 containers with it.
+     */
+    public String getEncKey() {
+        return encKey;
+    }
+
+    public @Nullable SomzFileHeaderCache getHeaderCache() {
+        return headerCache;
+    }
+
+    /**
+     * Decrypts an encrypted header block in either the binary or the JSON layout.
+     *
+     * @param encHeader The encrypted header, {@link SomzFileHeaderCipherBuffer#sizeOfHeader}
+     *                  bytes long
+     * @throws IOException If the header cannot be decrypted or a required field is
+     *                     missing
+     */
+    public SomzFileHeader decryptHeader(@NonNull byte[] encHeader) throws IOException {
+        SomzFileProbe probe = SomzFileProbe.begin(SomzFileMetrics.HEADER, SomzFileMetrics.Operation.HEADER_READ);
+        try {
+            SomzFileHeader header = SomzFileHeader.decode(headerKey.decrypt(encHeader, headerIv));
+            probe.end(encHeader.length);
+            return header;
+        } catch (IOException | RuntimeException exception) {
+            probe.fail();
+            throw exception;
+        } catch (GeneralSecurityException exception) {
+            probe.fail();
+            throw new IOException(exception);
+        }
+    }
+
+    /**
+     * Encodes and encrypts a header block.
+     *
+     * @return The encrypted header, {@link SomzFileHeaderCipherBuffer#sizeOfHeader}
+     *         bytes long
+     */
+    public byte[] encryptHeader(@NonNull SomzFileHeader header) throws IOException {
+        try {
+            return headerKey.encrypt(header.encode(), headerIv);
+        } catch (GeneralSecurityException exception) {
+            throw new IOException(exception);
+        }
+    }
+
+    /**
+     * Opens a read-only, seekable plaintext view of {@code inputFile}. Its
+     * header comes from the header cache of this key when it has one.
+     */
+    public SomzFileHeaderCipherChannel openReader(@NonNull Path inputFile) throws IOException {
+        return new SomzFileHeaderCipherChannel(FileChannel.open(inputFile, StandardOpenOption.READ), this, inputFile);
+    }
+
+    /**
+     * Wraps an already opened file in a read-only, seekable plaintext view. The
+     * channel is closed when the view is closed, or if its header cannot be
+     * read.
+     */
+    public SomzFileHeaderCipherChannel openReader(@NonNull FileChannel fileChannel) throws IOException {
+        return openReader(fileChannel, null);
+    }
+
+    /**
+     * Wraps an already opened file in a read-only, seekable plaintext view,
+     * looking its header up in the header cache of this key by
+     * {@code inputFile}.
+     *
+     * @param inputFile The path {@code fileChannel} was opened from, or null
+     */
+    public SomzFileHeaderCipherChannel openReader(@NonNull FileChannel fileChannel, @Nullable Path inputFile)
+            throws IOException {
+        return new SomzFileHeaderCipherChannel(fileChannel, this, inputFile);
+    }
+
+    /**
+     * Starts a session for a new file, with a random JSON header. Write
+     * {@link #encryptHeader(SomzFileHeader)} of its header before the data.
+     */
+    public Session newSession() {
+        return new Session(SomzFileHeader.create(SomzFileHeader.VERSION_JSON));
+    }
+
+    /**
+     * Starts a session from the encrypted header block read by the caller, for
+     * data that does not come from a file.
+     */
+    public Session newSession(@NonNull byte[] encHeader) throws IOException {
+        return new Session(decryptHeader(encHeader));
+    }
+
+    /**
+     * Starts a session for an already decrypted header, or for a new file with a
+     * header from {@link SomzFileHeader#create(String)} of another version.
+     */
+    public Session newSession(@NonNull SomzFileHeader header) {
+        return new Session(header);
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    /**
+     * Returns the header at the start of {@code fileChannel}, from the header
+     * cache if {@code inputFile} is known and there is one.
+     */
+    SomzFileHeader readHeader(FileChannel fileChannel, @Nullable Path inputFile) throws IOException {
+        if (Utils.notNull(headerCache) && Utils.notNull(inputFile)) {
+            return headerCache.get(inputFile, encKeyBytes, () -> readHeader(fileChannel));
+        }
+        return readHeader(fileChannel);
+    }
+
+    private SomzFileHeader readHeader(FileChannel fileChannel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(sizeOfHeader);
+        while (buffer.hasRemaining()) {
+            if (fileChannel.read(buffer, buffer.position()) == -1) {
+                throw new EOFException("The input file is shorter than its header.");
+            }
+        }
+        return decryptHeader(buffer.array());
+    }
+
+    // ===================== PUBLIC ENUM ===================== //
+    /**
+     * The decrypted header of one file and what it takes to decrypt its data.
+     * Sessions are immutable, so one can serve any number of threads and
+     * ranges at once. The data of a header cipher file does not depend on its
+     * offset, so the bytes may come in any order and from any source.
+     */
+    public static final class Session {
+        private final SomzFileHeader header;
+        private final byte keyByte;
+
+        private Session(SomzFileHeader header) {
+            this.header = header;
+            this.keyByte = header.getKeyByte();
+        }
+
+        public SomzFileHeader getHeader() {
+            return header;
+        }
+
+        /**
+         * Decrypts {@code length} bytes of {@code data} from {@code offset} in
+         * place.
+         */
+        public void decrypt(@NonNull byte[] data, int offset, int length) {
+            Objects.checkFromIndexSize(offset, length, data.length);
+            SomzFileXorKernel.xor(data, offset, data, offset, length, keyByte);
+        }
+
+        /**
+         * Decrypts {@code length} bytes of {@code src} from {@code srcOffset} into
+         * {@code dst} from {@code dstOffset}.
+         */
+        public void decrypt(@NonNull byte[] src, int srcOffset, @NonNull byte[] dst, int dstOffset, int length) {
+            Objects.checkFromIndexSize(srcOffset, length, src.length);
+            Objects.checkFromIndexSize(dstOffset, length, dst.length);
+            SomzFileXorKernel.xor(src, srcOffset, dst, dstOffset, length, keyByte);
+        }
+
+        /**
+         * Encrypts {@code length} bytes of {@code src} from {@code srcOffset} into
+         * {@code dst} from {@code dstOffset}. The arrays may be the same, with
+         * the same offsets, for in-place operation.
+         */
+        public void encrypt(@NonNull byte[] src, int srcOffset, @NonNull byte[] dst, int dstOffset, int length) {
+            // Encryption and decryption are the same XOR
+            decrypt(src, srcOffset, dst, dstOffset, length);
+        }
+
+        /**
+         * Decrypts {@code length} bytes of {@code buffer} from the absolute
+         * {@code index} in place. The buffer position is not changed.
+         */
+        public void decrypt(@NonNull ByteBuffer buffer, int index, int length) {
+            Objects.checkFromIndexSize(index, length, buffer.limit());
+            SomzFileXorKernel.xor(buffer, index, buffer, index, length, keyByte);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.shibbeeventures.shibbeeofficialmovies.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * The JDK Flight Recorder events of the ciphers. A disabled event costs no
+ * more than creating it, so they are always emitted. Chunk events are disabled
+ * by default; turn them on in the recording settings, e.g.
+ * {@code -XX:StartFlightRecording:settings=profile,+com.shibbeeventures.somzfile.Chunk#enabled=true}.
+ */
+public class SomzFileEvents {
+
+    /**
+     * Fields shared by every cipher event.
+     */
+    @Category({ "SomzFile" })
+    @StackTrace(false)
+    abstract static class CipherEvent extends Event {
+        @Label("Cipher")
+        String cipher;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("Failed")
+        boolean isFailed;
+    }
+
+    @Name("com.shibbeeventures.somzfile.HeaderRead")
+    @Label("Header Read")
+    @Description("Reading and decrypting a file header")
+    public static class HeaderRead extends CipherEvent {
+    }
+
+    @Name("com.shibbeeventures.somzfile.HeaderWrite")
+    @Label("Header Write")
+    @Description("Encrypting and writing a file header")
+    public static class HeaderWrite extends CipherEvent {
+    }
+
+    @Name("com.shibbeeventures.somzfile.Chunk")
+    @Label("Chunk Transform")
+    @Description("Transforming one chunk or window of a file")
+    @Enabled(false)
+    @Threshold("0 ms")
+    public static class Chunk extends CipherEvent {
+    }
+
+    @Name("com.shibbeeventures.somzfile.Operation")
+    @Label("Cipher Operation")
+    @Description("Encrypting or decrypting a whole file or buffer")
+    public static class Operation extends CipherEvent {
+        @Label("Operation")
+        String operation;
+    }
+}
@@ -0,0 +1,284 @@
+package com.shibbeeventures.shibbeeofficialmovies.metrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+import com.shibbeeventures.annotations.NonNull;
+
+/**
+ * A registry of operation counts, error counts, bytes, time and latency
+ * histograms per cipher and operation, for scraping. Recording is off unless
+ * the {@code somzfile.metrics} system property is {@code true} or
+ * {@link #setEnabled(boolean)} turns it on, and then costs a single volatile
+ * read per operation.
+ *
+ * <p>
+ * Latencies are counted in power-of-two buckets from 1 microsecond to about 68
+ * seconds.
+ * </p>
+ */
+public class SomzFileMetrics {
+    public static final String HEADER = "header";
+    public static final String HYBRID = "hybrid";
+    public static final String AES_CTR = "aes-ctr";
+    public static final String CHACHA20 = "chacha20";
+    private static final int minLatencyBucket = 10; // 2^10 ns, about 1 microsecond
+    private static final int sizeOfLatencyBuckets = 27; // Up to 2^36 ns, about 68 seconds
+    private static final SomzFileMetrics SHARED = new SomzFileMetrics();
+    private final ConcurrentHashMap<String, Series[]> series = new ConcurrentHashMap<>();
+    private volatile boolean isEnabled = Boolean.getBoolean("somzfile.metrics");
+
+    /**
+     * Returns the registry the ciphers record into.
+     */
+    public static SomzFileMetrics getShared() {
+        return SHARED;
+    }
+
+    public boolean isEnabled() {
+        return isEnabled;
+    }
+
+    public void setEnabled(boolean isEnabled) {
+        this.isEnabled = isEnabled;
+    }
+
+    /**
+     * Records a completed operation of {@code bytes} bytes that took
+     * {@code nanos} nanoseconds.
+     */
+    public void record(@NonNull String cipher, @NonNull Operation operation, long bytes, long nanos) {
+        if (isEnabled) {
+            seriesOf(cipher, operation).record(bytes, nanos);
+        }
+    }
+
+    /**
+     * Records a failed operation.
+     */
+    public void recordError(@NonNull String cipher, @NonNull Operation operation) {
+        if (isEnabled) {
+            seriesOf(cipher, operation).errors.increment();
+        }
+    }
+
+    /**
+     * Returns the current values of every cipher and operation recorded so far.
+     */
+    public List<Snapshot> snapshot() {
+        List<Snapshot> snapshots = new ArrayList<>();
+        series.forEach((cipher, operations) -> {
+            for (Operation operation : Operation.values()) {
+                Series values = operations[operation.ordinal()];
+                if (values.count.sum() > 0 || values.errors.sum() > 0) {
+                    snapshots.add(values.snapshot(cipher, operation));
+                }
+            }
+        });
+        return snapshots;
+    }
+
+    /**
+     * Writes the metrics in the Prometheus text exposition format.
+     */
+    public void writePrometheus(@NonNull Appendable out) throws IOException {
+        List<Snapshot> snapshots = snapshot();
+        writeCounter(out, snapshots, "somzfile_operations_total", "Completed operations.", Snapshot::getCount);
+        writeCounter(out, snapshots, "somzfile_errors_total", "Failed operations.", Snapshot::getErrors);
+        writeCounter(out, snapshots, "somzfile_bytes_total", "Bytes processed.", Snapshot::getBytes);
+        out.append("# HELP somzfile_bytes_per_second Bytes processed per second of operation time.\n");
+        out.append("# TYPE somzfile_bytes_per_second gauge\n");
+        for (Snapshot snapshot : snapshots) {
+            out.append("somzfile_bytes_per_second").append(labels(snapshot)).append(' ')
+                    .append(String.format(Locale.ROOT, "%.1f", snapshot.getBytesPerSecond())).append('\n');
+        }
+        out.append("# HELP somzfile_latency_seconds Operation latency.\n");
+        out.append("# TYPE somzfile_latency_seconds histogram\n");
+        for (Snapshot snapshot : snapshots) {
+            String labels = labels(snapshot);
+            String prefix = labels.substring(0, labels.length() - 1) + ",le=\"";
+            long cumulative = 0;
+            for (int i = 0; i < sizeOfLatencyBuckets; i++) {
+                cumulative += snapshot.latencyBuckets[i];
+                out.append("somzfile_latency_seconds_bucket").append(prefix)
+                        .append(String.format(Locale.ROOT, "%.9f", upperBoundOf(i) / 1e9)).append("\"} ")
+                        .append(String.valueOf(cumulative)).append('\n');
+            }
+            out.append("somzfile_latency_seconds_bucket").append(prefix).append("+Inf\"} ")
+                    .append(String.valueOf(snapshot.getCount())).append('\n');
+            out.append("somzfile_latency_seconds_sum").append(labels).append(' ')
+                    .append(String.format(Locale.ROOT, "%.9f", snapshot.getNanos() / 1e9)).append('\n');
+            out.append("somzfile_latency_seconds_count").append(labels).append(' ')
+                    .append(String.valueOf(snapshot.getCount())).append('\n');
+        }
+    }
+
+    /**
+     * Clears every recorded value.
+     */
+    public void reset() {
+        series.clear();
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    private Series seriesOf(String cipher, Operation operation) {
+        Series[] operations = series.get(cipher);
+        if (operations == null) {
+            operations = series.computeIfAbsent(cipher, key -> {
+                Series[] created = new Series[Operation.values().length];
+                for (int i = 0; i < created.length; i++) {
+                    created[i] = new Series();
+                }
+                return created;
+            });
+        }
+        return operations[operation.ordinal()];
+    }
+
+    private static void writeCounter(Appendable out, List<Snapshot> snapshots, String name, String help,
+            ToLongFunction<Snapshot> value) throws IOException {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        for (Snapshot snapshot : snapshots) {
+            out.append(name).append(labels(snapshot)).append(' ')
+                    .append(String.valueOf(value.applyAsLong(snapshot))).append('\n');
+        }
+    }
+
+    private static String labels(Snapshot snapshot) {
+        return "{cipher=\"" + snapshot.getCipher() + "\",operation=\"" + snapshot.getOperation().getName() + "\"}";
+    }
+
+    private static long upperBoundOf(int bucket) {
+        return 1L << (minLatencyBucket + bucket);
+    }
+
+    /**
+     * Returns the first bucket whose upper bound is at least {@code nanos}, or
+     * {@link #sizeOfLatencyBuckets} if there is none.
+     */
+    private static int bucketOf(long nanos) {
+        int log2 = nanos <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(nanos - 1);
+        return Math.min(Math.max(log2 - minLatencyBucket, 0), sizeOfLatencyBuckets);
+    }
+
+    private static class Series {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final AtomicLongArray latencyBuckets = new AtomicLongArray(sizeOfLatencyBuckets);
+
+        private void record(long bytes, long nanos) {
+            this.count.increment();
+            this.bytes.add(bytes);
+            this.nanos.add(nanos);
+            int bucket = bucketOf(nanos);
+            if (bucket < sizeOfLatencyBuckets) {
+                latencyBuckets.incrementAndGet(bucket);
+            }
+        }
+
+        private Snapshot snapshot(String cipher, Operation operation) {
+            long[] buckets = new long[sizeOfLatencyBuckets];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = latencyBuckets.get(i);
+            }
+            return new Snapshot(cipher, operation, count.sum(), errors.sum(), bytes.sum(), nanos.sum(), buckets);
+        }
+    }
+
+    // ===================== PUBLIC ENUM ===================== //
+    public enum Operation {
+        HEADER_READ("header_read"),
+        HEADER_WRITE("header_write"),
+        /** A chunk or window transformed during a file operation */
+        CHUNK("chunk"),
+        ENCRYPT("encrypt"),
+        DECRYPT("decrypt");
+
+        private final String name;
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Returns the name used in metric labels and events.
+         */
+        public String getName() {
+            return name;
+        }
+    }
+
+    public static class Snapshot {
+        private final String cipher;
+        private final Operation operation;
+        private final long count;
+        private final long errors;
+        private final long bytes;
+        private final long nanos;
+        private final long[] latencyBuckets;
+
+        private Snapshot(String cipher, Operation operation, long count, long errors, long bytes, long nanos,
+                long[] latencyBuckets) {
+            this.cipher = cipher;
+            this.operation = operation;
+            this.count = count;
+            this.errors = errors;
+            this.bytes = bytes;
+            this.nanos = nanos;
+            this.latencyBuckets = latencyBuckets;
+        }
+
+        public String getCipher() {
+            return cipher;
+        }
+
+        public Operation getOperation() {
+            return operation;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Returns the total time of the completed operations.
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * Returns the bytes processed per second of operation time.
+         */
+        public double getBytesPerSecond() {
+            return nanos > 0 ? bytes * 1e9 / nanos : 0;
+        }
+
+        /**
+         * Returns the number of operations per latency bucket. Bucket {@code i}
+         * counts latencies above the previous bound up to {@code 2^(i + 10)}
+         * nanoseconds.
+         */
+        public long[] getLatencyBuckets() {
+            return latencyBuckets.clone();
+        }
+    }
+}
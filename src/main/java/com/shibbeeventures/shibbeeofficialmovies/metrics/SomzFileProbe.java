@@ -0,0 +1,87 @@
+package com.shibbeeventures.shibbeeofficialmovies.metrics;
+
+import com.shibbeeventures.annotations.NonNull;
+
+/**
+ * Times one cipher operation into its {@link SomzFileEvents} event and the
+ * shared {@link SomzFileMetrics}. When neither the event nor the metrics are
+ * enabled, {@link #begin} returns a shared probe that does nothing.
+ *
+ * <pre>
+ * SomzFileProbe probe = SomzFileProbe.begin(SomzFileMetrics.HYBRID, SomzFileMetrics.Operation.CHUNK);
+ * transform(chunk);
+ * probe.end(chunk.limit());
+ * </pre>
+ */
+public class SomzFileProbe {
+    private static final SomzFileProbe DISABLED = new SomzFileProbe(null, null, null, 0);
+    private final String cipher;
+    private final SomzFileMetrics.Operation operation;
+    private final SomzFileEvents.CipherEvent event;
+    private final long startNanos;
+
+    private SomzFileProbe(String cipher, SomzFileMetrics.Operation operation, SomzFileEvents.CipherEvent event,
+            long startNanos) {
+        this.cipher = cipher;
+        this.operation = operation;
+        this.event = event;
+        this.startNanos = startNanos;
+    }
+
+    public static SomzFileProbe begin(@NonNull String cipher, @NonNull SomzFileMetrics.Operation operation) {
+        SomzFileEvents.CipherEvent event = newEvent(operation);
+        if (!event.isEnabled() && !SomzFileMetrics.getShared().isEnabled()) {
+            return DISABLED;
+        }
+        event.begin();
+        return new SomzFileProbe(cipher, operation, event, System.nanoTime());
+    }
+
+    /**
+     * Completes the operation after processing {@code bytes} bytes.
+     */
+    public void end(long bytes) {
+        if (this != DISABLED) {
+            SomzFileMetrics.getShared().record(cipher, operation, bytes, System.nanoTime() - startNanos);
+            commit(bytes, false);
+        }
+    }
+
+    /**
+     * Completes the operation as failed.
+     */
+    public void fail() {
+        if (this != DISABLED) {
+            SomzFileMetrics.getShared().recordError(cipher, operation);
+            commit(0, true);
+        }
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    private void commit(long bytes, boolean isFailed) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.cipher = cipher;
+            event.bytes = bytes;
+            event.isFailed = isFailed;
+            if (event instanceof SomzFileEvents.Operation) {
+                ((SomzFileEvents.Operation) event).operation = operation.getName();
+            }
+            event.commit();
+        }
+    }
+
+    private static SomzFileEvents.CipherEvent newEvent(SomzFileMetrics.Operation operation) {
+        switch (operation) {
+            case HEADER_READ:
+                return new SomzFileEvents.HeaderRead();
+            case HEADER_WRITE:
+                return new SomzFileEvents.HeaderWrite();
+            case CHUNK:
+                return new SomzFileEvents.Chunk();
+            default:
+                return new SomzFileEvents.Operation();
+        }
+    }
+}
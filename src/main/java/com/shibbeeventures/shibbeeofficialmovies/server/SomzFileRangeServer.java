@@ -0,0 +1,257 @@
+package com.shibbeeventures.shibbeeofficialmovies.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.shibbeeventures.annotations.NonNull;
+import com.shibbeeventures.annotations.Nullable;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.chunked.SomzFileChunkedCipher;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.header.SomzFileHeaderCache;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.header.SomzFileHeaderKey;
+import com.shibbeeventures.utils.Utils;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves a directory of {@code SomzFileHeaderCipher} files and chunked
+ * containers over HTTP, decrypted on the fly. {@code GET} and {@code HEAD}
+ * requests support a single {@code Range} of bytes, answered with
+ * {@code 206 Partial Content}, and only the requested window is read and
+ * decrypted, through a bounded buffer. Requests with several ranges are
+ * answered with the whole file.
+ */
+public class SomzFileRangeServer {
+    public static final int defaultThreads = 64;
+    private static final int sizeOfBuffer = 65536; // Stream 64KB at a time
+    private static final Logger LOGGER = Logger.getLogger(SomzFileRangeServer.class.getName());
+    private static final ThreadLocal<ByteBuffer> BUFFERS = ThreadLocal
+            .withInitial(() -> ByteBuffer.allocate(sizeOfBuffer));
+    private final Path directory;
+    private final SomzFileHeaderKey key;
+    private int threads = defaultThreads;
+    private @Nullable HttpServer server;
+    private @Nullable ExecutorService executor;
+
+    /**
+     * @param directory The directory of encrypted files to serve
+     * @param encKey    The 32 bytes master key of the files
+     */
+    public SomzFileRangeServer(@NonNull String directory, @NonNull String encKey) throws IOException {
+        this(directory, encKey, SomzFileHeaderCache.getShared());
+    }
+
+    public SomzFileRangeServer(@NonNull String directory, @NonNull String encKey,
+            @NonNull SomzFileHeaderCache headerCache) throws IOException {
+        this(directory, new SomzFileHeaderKey(encKey, headerCache));
+    }
+
+    /**
+     * Serves the files with a key shared with other readers.
+     */
+    public SomzFileRangeServer(@NonNull String directory, @NonNull SomzFileHeaderKey key) {
+        this.directory = Path.of(directory).toAbsolutePath().normalize();
+        this.key = key;
+    }
+
+    /**
+     * Sets the number of requests served concurrently. Takes effect on the next
+     * {@link #start(InetSocketAddress)}.
+     */
+    public void setThreads(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Threads must be positive.");
+        }
+        this.threads = threads;
+    }
+
+    public synchronized void start(@NonNull InetSocketAddress address) throws IOException {
+        if (Utils.notNull(server)) {
+            throw new IOException("The server is already started.");
+        }
+        HttpServer httpServer = HttpServer.create(address, 0);
+        httpServer.createContext("/", this::handle);
+        executor = Executors.newFixedThreadPool(threads);
+        httpServer.setExecutor(executor);
+        httpServer.start();
+        server = httpServer;
+    }
+
+    /**
+     * Stops the server, waiting up to {@code delaySeconds} for running exchanges
+     * to finish.
+     */
+    public synchronized void stop(int delaySeconds) {
+        if (Utils.notNull(server)) {
+            server.stop(delaySeconds);
+            executor.shutdownNow();
+            server = null;
+            executor = null;
+        }
+    }
+
+    /**
+     * Returns the port the server listens on, or -1 if it is not started.
+     */
+    public synchronized int getPort() {
+        return Utils.notNull(server) ? server.getAddress().getPort() : -1;
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            boolean isHead = "HEAD".equalsIgnoreCase(method);
+            if (!isHead && !"GET".equalsIgnoreCase(method)) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            Path file = resolve(exchange.getRequestURI().getPath());
+            if (file == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            SeekableByteChannel channel;
+            try {
+                channel = SomzFileChunkedCipher.openChannel(file, key);
+            } catch (IOException exception) {
+                // Not a file encrypted with this key
+                LOGGER.log(Level.FINE, "Failed to read the header of " + file, exception);
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            try (channel) {
+                serve(exchange, file, channel, isHead);
+            }
+        } catch (IOException exception) {
+            // Mostly players closing the connection after a seek
+            LOGGER.log(Level.FINE, "Failed to serve " + exchange.getRequestURI(), exception);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void serve(HttpExchange exchange, Path file, SeekableByteChannel channel, boolean isHead)
+            throws IOException {
+        long size = channel.size();
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Accept-Ranges", "bytes");
+        String contentType = URLConnection.guessContentTypeFromName(file.getFileName().toString());
+        headers.set("Content-Type", Utils.notNull(contentType) ? contentType : "application/octet-stream");
+        long[] range = parseRange(exchange.getRequestHeaders().getFirst("Range"), size);
+        long start = 0;
+        long length = size;
+        int status = 200;
+        if (Utils.notNull(range)) {
+            if (range.length == 0) {
+                headers.set("Content-Range", "bytes */" + size);
+                exchange.sendResponseHeaders(416, -1);
+                return;
+            }
+            start = range[0];
+            length = range[1] - range[0] + 1;
+            status = 206;
+            headers.set("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + size);
+        }
+        if (isHead) {
+            headers.set("Content-Length", String.valueOf(length));
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        // A zero length means chunked encoding to this server, empty bodies use -1
+        exchange.sendResponseHeaders(status, length == 0 ? -1 : length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            transfer(channel, start, length, out);
+        }
+    }
+
+    private void transfer(SeekableByteChannel channel, long start, long length, OutputStream out)
+            throws IOException {
+        ByteBuffer buffer = BUFFERS.get();
+        channel.position(start);
+        long remaining = length;
+        while (remaining > 0) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), remaining));
+            int bytesRead = channel.read(buffer);
+            if (bytesRead == -1) {
+                throw new IOException("The file was truncated while serving.");
+            }
+            out.write(buffer.array(), 0, bytesRead);
+            remaining -= bytesRead;
+        }
+    }
+
+    /**
+     * Resolves a request path inside the served directory, or returns null if it
+     * escapes the directory or is not a regular file.
+     */
+    private @Nullable Path resolve(String requestPath) {
+        try {
+            String relative = requestPath.startsWith("/") ? requestPath.substring(1) : requestPath;
+            Path file = directory.resolve(relative).normalize();
+            if (file.startsWith(directory) && Files.isRegularFile(file)) {
+                return file;
+            }
+        } catch (InvalidPathException exception) {
+            // Not a file of this directory
+        }
+        return null;
+    }
+
+    /**
+     * Parses a single byte range against a file of {@code size} bytes.
+     *
+     * @return {start, end} with an inclusive end, an empty array if the range is
+     *         not satisfiable, or null if the whole file should be served
+     */
+    private static @Nullable long[] parseRange(@Nullable String header, long size) {
+        if (Utils.isNull(header) || !header.startsWith("bytes=") || header.indexOf(',') != -1) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash == -1) {
+            return null;
+        }
+        long start;
+        long end;
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // A suffix range: the last n bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return new long[0];
+                }
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+                if (start < 0 || (!last.isEmpty() && Long.parseLong(last) < start)) {
+                    return null;
+                }
+            }
+        } catch (NumberFormatException exception) {
+            return null;
+        }
+        if (start >= size || size == 0) {
+            return new long[0];
+        }
+        return new long[] { start, end };
+    }
+}
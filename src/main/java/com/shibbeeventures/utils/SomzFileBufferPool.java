@@ -0,0 +1,227 @@
+package com.shibbeeventures.utils;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.shibbeeventures.annotations.NonNull;
+import com.shibbeeventures.annotations.Nullable;
+
+/**
+ * A thread-safe pool of direct {@link ByteBuffer}s in power-of-two size
+ * classes, from {@link #minSizeOfClass} to {@link #maxSizeOfClass} bytes.
+ * Larger requests get a new buffer that is not kept. Released buffers are kept
+ * for reuse up to {@link #setMaxRetainedBytes(long)} bytes, the rest is left to
+ * the garbage collector.
+ *
+ * <p>
+ * Buffers are handed out as {@link Lease}s, to be closed when the buffer is no
+ * longer used. A lease that becomes unreachable without being closed is
+ * counted as a leak and logged. Its buffer is not reused, since it may still be
+ * referenced. Set the {@code somzfile.bufferpool.trace} system property to
+ * {@code true} to log where leaked buffers were acquired.
+ * </p>
+ */
+public class SomzFileBufferPool {
+    public static final int minSizeOfClass = 4096;
+    public static final int maxSizeOfClass = 64 * 1048576;
+    public static final long defaultMaxRetainedBytes = 256L * 1048576;
+    private static final Logger LOGGER = Logger.getLogger(SomzFileBufferPool.class.getName());
+    private static final boolean isLeakTraced = Boolean.getBoolean("somzfile.bufferpool.trace");
+    private static final Cleaner CLEANER = Cleaner.create();
+    private static final int minClassShift = Integer.numberOfTrailingZeros(minSizeOfClass);
+    private static final SomzFileBufferPool shared = new SomzFileBufferPool(defaultMaxRetainedBytes);
+    private final List<ConcurrentLinkedQueue<ByteBuffer>> classes;
+    private final AtomicLong retainedBytes = new AtomicLong();
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder allocations = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+    private final AtomicLong outstanding = new AtomicLong();
+    private volatile long maxRetainedBytes;
+
+    public SomzFileBufferPool(long maxRetainedBytes) {
+        int sizeOfClasses = Integer.numberOfTrailingZeros(maxSizeOfClass) - minClassShift + 1;
+        this.classes = new ArrayList<>(sizeOfClasses);
+        for (int i = 0; i < sizeOfClasses; i++) {
+            classes.add(new ConcurrentLinkedQueue<>());
+        }
+        this.maxRetainedBytes = maxRetainedBytes;
+    }
+
+    /**
+     * Returns the pool shared by the cipher and file I/O paths.
+     */
+    public static SomzFileBufferPool getShared() {
+        return shared;
+    }
+
+    /**
+     * Sets how many bytes of released buffers are kept for reuse. Buffers already
+     * kept over the new limit are dropped.
+     */
+    public void setMaxRetainedBytes(long maxRetainedBytes) {
+        this.maxRetainedBytes = maxRetainedBytes;
+        for (ConcurrentLinkedQueue<ByteBuffer> free : classes) {
+            ByteBuffer buffer;
+            while (retainedBytes.get() > maxRetainedBytes && (buffer = free.poll()) != null) {
+                retainedBytes.addAndGet(-buffer.capacity());
+            }
+        }
+    }
+
+    /**
+     * Leases a direct buffer of exactly {@code size} bytes, positioned at 0 with
+     * its capacity as the limit.
+     */
+    public Lease acquire(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size must not be negative.");
+        }
+        acquisitions.increment();
+        int sizeClass = classOf(size);
+        ByteBuffer buffer = sizeClass < 0 ? null : classes.get(sizeClass).poll();
+        if (buffer != null) {
+            retainedBytes.addAndGet(-buffer.capacity());
+        } else {
+            int capacity = sizeClass < 0 ? size : minSizeOfClass << sizeClass;
+            buffer = ByteBuffer.allocateDirect(capacity);
+            allocations.increment();
+            allocatedBytes.add(capacity);
+        }
+        outstanding.incrementAndGet();
+        return new Lease(this, buffer, sizeClass, size);
+    }
+
+    public long getAcquisitions() {
+        return acquisitions.sum();
+    }
+
+    /**
+     * Returns how many acquisitions had to allocate a new buffer.
+     */
+    public long getAllocations() {
+        return allocations.sum();
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    /**
+     * Returns the number of leases that were garbage collected without being
+     * closed.
+     */
+    public long getLeaks() {
+        return leaks.sum();
+    }
+
+    /**
+     * Returns the number of leases not closed yet, leaked ones excluded.
+     */
+    public long getOutstanding() {
+        return outstanding.get();
+    }
+
+    public long getRetainedBytes() {
+        return retainedBytes.get();
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    /**
+     * Returns the index of the smallest class that fits {@code size}, or -1 if no
+     * class does.
+     */
+    private static int classOf(int size) {
+        if (size > maxSizeOfClass) {
+            return -1;
+        } else if (size <= minSizeOfClass) {
+            return 0;
+        }
+        int shift = 32 - Integer.numberOfLeadingZeros(size - 1); // Round up to a power of two
+        return shift - minClassShift;
+    }
+
+    private void release(ByteBuffer buffer, int sizeClass) {
+        outstanding.decrementAndGet();
+        if (sizeClass < 0) {
+            return;
+        }
+        if (retainedBytes.addAndGet(buffer.capacity()) <= maxRetainedBytes) {
+            classes.get(sizeClass).offer(buffer.clear());
+        } else {
+            retainedBytes.addAndGet(-buffer.capacity());
+        }
+    }
+
+    /**
+     * The leak check, kept apart from the lease so the cleaner does not keep the
+     * lease reachable.
+     */
+    private static class LeaseState implements Runnable {
+        private final SomzFileBufferPool pool;
+        private final int size;
+        private final @Nullable Throwable acquiredAt;
+        private volatile boolean isReleased;
+
+        private LeaseState(SomzFileBufferPool pool, int size) {
+            this.pool = pool;
+            this.size = size;
+            this.acquiredAt = isLeakTraced ? new Throwable("Acquired here") : null;
+        }
+
+        @Override
+        public void run() {
+            if (!isReleased) {
+                pool.leaks.increment();
+                pool.outstanding.decrementAndGet();
+                LOGGER.log(Level.WARNING, "A pooled buffer of " + size + " bytes was never released", acquiredAt);
+            }
+        }
+    }
+
+    // ===================== PUBLIC ENUM ===================== //
+    public static class Lease implements AutoCloseable {
+        private final SomzFileBufferPool pool;
+        private final ByteBuffer pooled;
+        private final ByteBuffer buffer;
+        private final int sizeClass;
+        private final LeaseState state;
+        private final Cleaner.Cleanable cleanable;
+
+        private Lease(SomzFileBufferPool pool, ByteBuffer pooled, int sizeClass, int size) {
+            this.pool = pool;
+            this.pooled = pooled;
+            this.buffer = pooled.clear().limit(size).slice();
+            this.sizeClass = sizeClass;
+            this.state = new LeaseState(pool, size);
+            this.cleanable = CLEANER.register(this, state);
+        }
+
+        /**
+         * Returns the leased buffer. It must not be used after {@link #close()}.
+         */
+        public @NonNull ByteBuffer buffer() {
+            return buffer;
+        }
+
+        /**
+         * Returns the buffer to the pool. Closing a lease twice has no effect.
+         */
+        @Override
+        public synchronized void close() {
+            if (!state.isReleased) {
+                state.isReleased = true;
+                cleanable.clean();
+                pool.release(pooled, sizeClass);
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.shibbeeventures.utils;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.shibbeeventures.annotations.NonNull;
+import com.shibbeeventures.annotations.Nullable;
+
+/**
+ * Reads a file, or a range of it, lazily one chunk at a time, for files of any
+ * size. Every chunk but the last one is exactly {@code sizeOfChunk} bytes long,
+ * so chunk positions stay aligned to the chunk size.
+ *
+ * <p>
+ * Chunks are either one reused direct buffer from the shared
+ * {@link SomzFileBufferPool}, or read-only memory-mapped slices
+ * of the file. Either way a chunk is only valid until the next one is
+ * requested, and must be copied to be kept.
+ * </p>
+ */
+public class SomzFileChunkSource implements Closeable {
+    public static final int defaultSizeOfChunk = 1048576; // Read 1MB at a time
+    private final FileChannel channel;
+    private final boolean isChannelOwner;
+    private final long start;
+    private final long end;
+    private final int sizeOfChunk;
+    private final boolean isMemoryMapped;
+    private @Nullable SomzFileBufferPool.Lease lease;
+    private long position;
+    private long chunkPosition = -1;
+
+    public SomzFileChunkSource(@NonNull String filePath) throws IOException {
+        this(Path.of(filePath), defaultSizeOfChunk, false);
+    }
+
+    /**
+     * Reads the whole {@code file}, which is closed with this source.
+     */
+    public SomzFileChunkSource(@NonNull Path file, int sizeOfChunk, boolean isMemoryMapped) throws IOException {
+        this(FileChannel.open(file, StandardOpenOption.READ), true, 0, -1, sizeOfChunk, isMemoryMapped);
+    }
+
+    /**
+     * Reads the range [start, end) of {@code channel} with positional reads, so
+     * the channel position is not used. The channel is not closed with this
+     * source.
+     */
+    public SomzFileChunkSource(@NonNull FileChannel channel, long start, long end, int sizeOfChunk,
+            boolean isMemoryMapped) throws IOException {
+        this(channel, false, start, end, sizeOfChunk, isMemoryMapped);
+    }
+
+    private SomzFileChunkSource(FileChannel channel, boolean isChannelOwner, long start, long end, int sizeOfChunk,
+            boolean isMemoryMapped) throws IOException {
+        this.channel = channel;
+        this.isChannelOwner = isChannelOwner;
+        try {
+            if (sizeOfChunk <= 0) {
+                throw new IllegalArgumentException("The chunk size must be positive.");
+            }
+            this.start = start;
+            this.end = end < 0 ? channel.size() : end;
+            if (start < 0 || start > this.end) {
+                throw new IllegalArgumentException("The range is not valid.");
+            }
+        } catch (IOException | RuntimeException exception) {
+            if (isChannelOwner) {
+                channel.close();
+            }
+            throw exception;
+        }
+        this.sizeOfChunk = sizeOfChunk;
+        this.isMemoryMapped = isMemoryMapped;
+        this.position = start;
+    }
+
+    /**
+     * Returns the number of bytes in the range.
+     */
+    public long size() {
+        return end - start;
+    }
+
+    /**
+     * Returns the next chunk, positioned at 0 with its length as the limit, or
+     * null at the end of the range. The previous chunk must not be used anymore.
+     *
+     * @throws EOFException If the file was truncated while it is read
+     */
+    public @Nullable ByteBuffer next() throws IOException {
+        if (position >= end) {
+            return null;
+        }
+        int length = (int) Math.min(sizeOfChunk, end - position);
+        ByteBuffer chunk;
+        if (isMemoryMapped) {
+            chunk = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        } else {
+            if (Utils.isNull(lease)) {
+                lease = SomzFileBufferPool.getShared().acquire((int) Math.min(sizeOfChunk, size()));
+            }
+            chunk = lease.buffer();
+            chunk.clear().limit(length);
+            while (chunk.hasRemaining()) {
+                if (channel.read(chunk, position + chunk.position()) == -1) {
+                    throw new EOFException("The file was truncated while reading.");
+                }
+            }
+            chunk.flip();
+        }
+        chunkPosition = position;
+        position += length;
+        return chunk;
+    }
+
+    /**
+     * Returns the file position of the chunk last returned by {@link #next()}, or
+     * -1 before the first chunk.
+     */
+    public long getChunkPosition() {
+        return chunkPosition;
+    }
+
+    /**
+     * Hands every remaining chunk to {@code handler}, until the handler returns
+     * false or the range ends.
+     *
+     * @return The number of bytes handed to the handler
+     */
+    public long forEach(@NonNull ChunkHandler handler) throws IOException {
+        long bytesHandled = 0;
+        ByteBuffer chunk;
+        while ((chunk = next()) != null) {
+            bytesHandled += chunk.remaining();
+            if (!handler.onChunk(chunk, chunkPosition)) {
+                break;
+            }
+        }
+        return bytesHandled;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (Utils.notNull(lease)) {
+            lease.close();
+            lease = null;
+        }
+        if (isChannelOwner) {
+            channel.close();
+        }
+    }
+
+    // ===================== PUBLIC ENUM ===================== //
+    public interface ChunkHandler {
+        /**
+         * @param chunk    The chunk, only valid during the call
+         * @param position The file position of the chunk
+         * @return True to continue with the next chunk, false to stop
+         */
+        boolean onChunk(@NonNull ByteBuffer chunk, long position) throws IOException;
+    }
+}
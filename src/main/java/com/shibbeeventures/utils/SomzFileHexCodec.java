@@ -0,0 +1,172 @@
+package com.shibbeeventures.utils;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+import com.shibbeeventures.annotations.NonNull;
+
+/**
+ * A table-driven hex encoder and decoder. Encoding looks up both digits of a
+ * byte at once and decoding looks up each digit, with no intermediate strings.
+ * Output can go into a new string, a caller-supplied {@code char[]} or any
+ * {@link Appendable}.
+ */
+public class SomzFileHexCodec {
+    private static final int sizeOfAppendBatch = 512; // Chars handed to an Appendable at a time
+    private static final char[] UPPER_PAIRS = pairs("0123456789ABCDEF");
+    private static final char[] LOWER_PAIRS = pairs("0123456789abcdef");
+    private static final byte[] DIGITS = new byte[128];
+
+    static {
+        Arrays.fill(DIGITS, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            DIGITS['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            DIGITS['A' + i] = (byte) (10 + i);
+            DIGITS['a' + i] = (byte) (10 + i);
+        }
+    }
+
+    /**
+     * Encodes {@code bytes} as hex digits, two per byte.
+     *
+     * @throws IllegalArgumentException If the digits do not fit in a string
+     */
+    public static String encode(@NonNull byte[] bytes, boolean isUpperCase) {
+        checkEncodedSize(bytes.length * 2L);
+        char[] hex = new char[bytes.length * 2];
+        encode(bytes, 0, bytes.length, hex, 0, isUpperCase);
+        return new String(hex);
+    }
+
+    /**
+     * Encodes {@code length} bytes of {@code bytes} from {@code offset} into
+     * {@code out} from {@code outOffset}.
+     *
+     * @return The offset in {@code out} after the last written digit
+     * @throws IndexOutOfBoundsException If {@code out} has no room for
+     *                                   {@code length * 2} chars
+     */
+    public static int encode(@NonNull byte[] bytes, int offset, int length, @NonNull char[] out, int outOffset,
+            boolean isUpperCase) {
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        Objects.checkFromIndexSize(outOffset, length * 2L, out.length);
+        char[] pairs = isUpperCase ? UPPER_PAIRS : LOWER_PAIRS;
+        int position = outOffset;
+        for (int i = offset; i < offset + length; i++) {
+            int pair = (bytes[i] & 0xFF) << 1;
+            out[position++] = pairs[pair];
+            out[position++] = pairs[pair + 1];
+        }
+        return position;
+    }
+
+    /**
+     * Encodes {@code length} bytes of {@code bytes} from {@code offset} into
+     * {@code out}, in batches through a small buffer.
+     */
+    public static void encode(@NonNull byte[] bytes, int offset, int length, @NonNull Appendable out,
+            boolean isUpperCase) throws IOException {
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        char[] batch = new char[(int) Math.min(length * 2L, sizeOfAppendBatch)];
+        for (int done = 0; done < length;) {
+            int count = Math.min(length - done, batch.length / 2);
+            int end = encode(bytes, offset + done, count, batch, 0, isUpperCase);
+            out.append(CharBuffer.wrap(batch, 0, end));
+            done += count;
+        }
+    }
+
+    /**
+     * Encodes {@code bytes} as space separated pairs of hex digits, e.g.
+     * {@code "0A FF 12"}.
+     *
+     * @throws IllegalArgumentException If the digits do not fit in a string
+     */
+    public static String encodePairs(@NonNull byte[] bytes, boolean isUpperCase) {
+        if (bytes.length == 0) {
+            return "";
+        }
+        checkEncodedSize(bytes.length * 3L - 1);
+        char[] pairs = isUpperCase ? UPPER_PAIRS : LOWER_PAIRS;
+        char[] hex = new char[bytes.length * 3 - 1];
+        int position = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (i > 0) {
+                hex[position++] = ' ';
+            }
+            int pair = (bytes[i] & 0xFF) << 1;
+            hex[position++] = pairs[pair];
+            hex[position++] = pairs[pair + 1];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Decodes hex digits of either case into bytes.
+     *
+     * @throws IllegalArgumentException If {@code hex} has an odd length or a char
+     *                                  that is not a hex digit
+     */
+    public static byte[] decode(@NonNull CharSequence hex) {
+        if (hex.length() % 2 != 0) {
+            throw new IllegalArgumentException("A hex string must have an even length.");
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        decode(hex, 0, hex.length(), bytes, 0);
+        return bytes;
+    }
+
+    /**
+     * Decodes the hex digits [{@code start}, {@code end}) of {@code hex} into
+     * {@code out} from {@code outOffset}.
+     *
+     * @return The offset in {@code out} after the last written byte
+     * @throws IllegalArgumentException If the range has an odd length or a char
+     *                                  that is not a hex digit
+     */
+    public static int decode(@NonNull CharSequence hex, int start, int end, @NonNull byte[] out, int outOffset) {
+        Objects.checkFromToIndex(start, end, hex.length());
+        if ((end - start) % 2 != 0) {
+            throw new IllegalArgumentException("A hex string must have an even length.");
+        }
+        Objects.checkFromIndexSize(outOffset, (end - start) / 2, out.length);
+        int position = outOffset;
+        for (int i = start; i < end; i += 2) {
+            out[position++] = (byte) (digit(hex, i) << 4 | digit(hex, i + 1));
+        }
+        return position;
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    private static void checkEncodedSize(long size) {
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many bytes to encode as a string.");
+        }
+    }
+
+    private static int digit(CharSequence hex, int index) {
+        char c = hex.charAt(index);
+        int digit = c < DIGITS.length ? DIGITS[c] : -1;
+        if (digit < 0) {
+            throw new IllegalArgumentException("Invalid hex digit '" + c + "' at index " + index + ".");
+        }
+        return digit;
+    }
+
+    /**
+     * Returns the two digits of every byte value, at index {@code value * 2}.
+     */
+    private static char[] pairs(String digits) {
+        char[] pairs = new char[512];
+        for (int value = 0; value < 256; value++) {
+            pairs[value * 2] = digits.charAt(value >>> 4);
+            pairs[value * 2 + 1] = digits.charAt(value & 0x0F);
+        }
+        return pairs;
+    }
+}
@@ -1,12 +1,14 @@
 package com.shibbeeventures.utils;
 
-import java.io.BufferedInputStream;
 import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
@@ -36,41 +38,27 @@ public class Utils {
     }
 
     public static String byte2hex(byte b) {
-        return String.format("%02X", b);
+        return SomzFileHexCodec.encode(new byte[] { b }, true);
     }
 
     public static String bytes2hex(byte[] bytes) {
-        StringBuilder hex = new StringBuilder();
-        for (byte b : bytes) {
-            hex.append(String.format("%02X", b));
-        }
-        return hex.toString();
+        return SomzFileHexCodec.encode(bytes, true);
     }
 
     public static String string2hexPairs(@NonNull String input) {
-        byte[] bytes = input.getBytes();
-        StringBuilder hex = new StringBuilder();
-        for (byte b : bytes) {
-            hex.append(String.format("%02X ", b));
-        }
-        return hex.toString().trim();
+        return bytes2hexPairs(input.getBytes());
     }
 
     public static String bytes2hexPairs(byte[] bytes) {
-        StringBuilder hex = new StringBuilder();
-        for (byte b : bytes) {
-            hex.append(String.format("%02X ", b));
-        }
-        return hex.toString().trim();
+        return SomzFileHexCodec.encodePairs(bytes, true);
     }
 
+    /**
+     * @throws IllegalArgumentException If {@code hex} has an odd length or a char
+     *                                  that is not a hex digit
+     */
     public static byte[] hex2bytes(String hex) {
-        int len = hex.length();
-        byte[] data = new byte[len / 2];
-        for (int i = 0; i < len; i += 2) {
-            data[i / 2] = (byte) ((Character.digit(hex.charAt(i), 16) << 4) + Character.digit(hex.charAt(i + 1), 16));
-        }
-        return data;
+        return SomzFileHexCodec.decode(hex);
     }
 
     public static String shuffle(@NonNull String str) {
@@ -104,12 +92,8 @@ public class Utils {
             MessageDigest md = MessageDigest.getInstance("MD5");
             // Convert input string to bytes and update the digest, force UTF-8 encoding (same as PHP)
             byte[] digest = md.digest(input.getBytes(StandardCharsets.UTF_8));
-            // Convert bytes to hexadecimal format
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : digest) {
-                hexString.append(String.format("%02x", b)); // Convert each byte to a 2-digit hex
-            }
-            return hexString.toString(); // Return the final hash
+            // Convert bytes to lowercase hexadecimal format
+            return SomzFileHexCodec.encode(digest, false);
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException("MD5 algorithm not found", e);
         }
@@ -128,7 +112,9 @@ public class Utils {
     }
 
     /**
-     * Reads a file in chunks and returns the full byte array.
+     * Reads a file straight into the returned byte array. Use a
+     * {@link SomzFileChunkSource} for files that do not need to be on the heap at
+     * once.
      *
      * @param filePath The path to the file.
      * @return A byte array containing the entire file's data.
@@ -141,12 +127,12 @@ public class Utils {
             throw new IOException("File is too large to be stored in a single byte array.");
         } else {
             byte[] fileBytes = new byte[(int) fileSize];
-            try (BufferedInputStream bis = new BufferedInputStream(new FileInputStream(file))) {
-                int bytesRead, offset = 0;
-                byte[] buffer = new byte[GET_FILE_BYTES_CHUNK_SIZE];
-                while ((bytesRead = bis.read(buffer)) != -1) {
-                    System.arraycopy(buffer, 0, fileBytes, offset, bytesRead);
-                    offset += bytesRead;
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                ByteBuffer target = ByteBuffer.wrap(fileBytes);
+                while (target.hasRemaining()) {
+                    if (channel.read(target) == -1) {
+                        break;
+                    }
                 }
             }
             return fileBytes;
@@ -154,28 +140,24 @@ public class Utils {
     }
 
     /**
-     * Reads a file in chunks and returns a list of byte arrays.
+     * Reads a file in chunks and returns a list of byte arrays. Every chunk stays
+     * on the heap, use a {@link SomzFileChunkSource} to process large files chunk
+     * by chunk instead.
      *
      * @param filePath The path to the file.
      * @return A list of byte arrays, where each array is a chunk of the file.
      * @throws IOException If an I/O error occurs.
      */
     public static List<byte[]> getFileBytesAsList(@NonNull String filePath) throws IOException {
-        File file = new File(filePath);
         List<byte[]> chunks = new ArrayList<>();
-        try (BufferedInputStream bis = new BufferedInputStream(new FileInputStream(file))) {
-            byte[] buffer = new byte[GET_FILE_BYTES_CHUNK_SIZE];
-            int bytesRead;
-            while ((bytesRead = bis.read(buffer)) != -1) {
-                // If the last chunk is smaller, resize the buffer
-                if (bytesRead < GET_FILE_BYTES_CHUNK_SIZE) {
-                    byte[] lastChunk = new byte[bytesRead];
-                    System.arraycopy(buffer, 0, lastChunk, 0, bytesRead);
-                    chunks.add(lastChunk);
-                } else {
-                    chunks.add(buffer.clone());
-                }
-            }
+        try (SomzFileChunkSource source = new SomzFileChunkSource(Path.of(filePath), GET_FILE_BYTES_CHUNK_SIZE,
+                false)) {
+            source.forEach((chunk, position) -> {
+                // Each chunk is exactly as long as its data, the last one may be shorter
+                byte[] bytes = new byte[chunk.remaining()];
+                chunk.get(bytes);
+                return chunks.add(bytes);
+            });
         }
         return chunks;
     }
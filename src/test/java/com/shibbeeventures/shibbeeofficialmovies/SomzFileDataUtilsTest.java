@@ -0,0 +1,71 @@
+package com.shibbeeventures.shibbeeofficialmovies;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class SomzFileDataUtilsTest {
+    private static final String encKey = "0123456789abcdef0123456789abcdef";
+
+    @Test
+    void roundTripsArrays() {
+        byte[] data = randomBytes(100000);
+        byte[] encrypted = SomzFileDataUtils.encrypt(data, encKey);
+        assertEquals(SomzFileDataUtils.getEncryptedSize(data.length), encrypted.length);
+        assertArrayEquals(data, SomzFileDataUtils.decrypt(encrypted, encKey));
+    }
+
+    @Test
+    void streamsThroughReentrantStreams() throws IOException {
+        byte[] data = randomBytes(300000); // Several stream buffers
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        SomzFileDataUtils.encrypt(new ByteArrayInputStream(data), reentrant(encrypted), encKey);
+        assertEquals(SomzFileDataUtils.getEncryptedSize(data.length), encrypted.size());
+
+        ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+        SomzFileDataUtils.decrypt(new ByteArrayInputStream(encrypted.toByteArray()), reentrant(decrypted), encKey);
+        assertArrayEquals(data, decrypted.toByteArray());
+        assertArrayEquals(data, SomzFileDataUtils.decrypt(encrypted.toByteArray(), encKey));
+    }
+
+    @Test
+    void returnsNullOnErrors() {
+        assertNull(SomzFileDataUtils.encrypt(new byte[10], ""));
+        assertNull(SomzFileDataUtils.encrypt(new byte[10], "short"));
+        assertNull(SomzFileDataUtils.decrypt(new byte[10], encKey));
+        assertNull(SomzFileDataUtils.decrypt(new byte[32], ""));
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    private static byte[] randomBytes(int length) {
+        byte[] data = new byte[length];
+        new Random(8).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * Returns a stream that encrypts and decrypts other data on every write, as
+     * a caller's stream may.
+     */
+    private static OutputStream reentrant(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] buffer, int offset, int length) throws IOException {
+                byte[] other = randomBytes(70000);
+                assertArrayEquals(other,
+                        SomzFileDataUtils.decrypt(SomzFileDataUtils.encrypt(other, encKey), encKey));
+                out.write(buffer, offset, length);
+            }
+        };
+    }
+}
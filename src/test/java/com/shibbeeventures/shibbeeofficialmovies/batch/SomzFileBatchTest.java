@@ -0,0 +1,87 @@
+package com.shibbeeventures.shibbeeofficialmovies.batch;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class SomzFileBatchTest {
+    private static final String encKey = "0123456789abcdef0123456789abcdef";
+    @TempDir
+    Path directory;
+    private Path inputDirectory;
+    private Map<String, byte[]> files;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        inputDirectory = directory.resolve("input");
+        files = new LinkedHashMap<>();
+        files.put("empty", new byte[0]);
+        files.put("small.txt", randomBytes(1000, 1));
+        files.put("movies/large.mp4", randomBytes(3 * 1048576 + 17, 2));
+        files.put("movies/series/episode.mkv", randomBytes(65536, 3));
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            Path path = inputDirectory.resolve(file.getKey());
+            Files.createDirectories(path.getParent());
+            Files.write(path, file.getValue());
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(SomzFileBatch.Algorithm.class)
+    void processesDirectoryTrees(SomzFileBatch.Algorithm algorithm) throws IOException {
+        Path encryptedDirectory = directory.resolve("encrypted");
+        Path outputDirectory = directory.resolve("output");
+        SomzFileBatch encryption = new SomzFileBatch(encKey, algorithm, true);
+        encryption.setIoThreads(2);
+        encryption.setCpuThreads(2);
+        AtomicLong bytesDone = new AtomicLong();
+        SomzFileBatch.Result result = encryption.run(inputDirectory, encryptedDirectory,
+                (done, total, bytesPerSecond) -> bytesDone.set(done));
+        assertEquals(files.size(), result.getFiles());
+        assertTrue(result.getFailures().isEmpty());
+        long bytesTotal = files.values().stream().mapToLong(data -> data.length).sum();
+        assertEquals(bytesTotal, result.getBytesProcessed());
+        assertEquals(bytesTotal, bytesDone.get());
+
+        result = new SomzFileBatch(encKey, algorithm, false).run(encryptedDirectory, outputDirectory, null);
+        assertTrue(result.getFailures().isEmpty());
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            assertArrayEquals(file.getValue(), Files.readAllBytes(outputDirectory.resolve(file.getKey())));
+        }
+    }
+
+    @Test
+    void reportsFailedFiles() throws IOException {
+        Path outputDirectory = directory.resolve("output");
+        SomzFileBatch.Result result = new SomzFileBatch(encKey, SomzFileBatch.Algorithm.HEADER, false)
+                .run(inputDirectory, outputDirectory, null);
+        // None of the plain files has a header
+        assertEquals(files.size(), result.getFailures().size());
+        for (SomzFileBatch.Failure failure : result.getFailures()) {
+            assertFalse(Files.exists(outputDirectory.resolve(inputDirectory.relativize(failure.getFile()))));
+        }
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
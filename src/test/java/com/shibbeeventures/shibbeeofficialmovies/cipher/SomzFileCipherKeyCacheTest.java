@@ -0,0 +1,63 @@
+package com.shibbeeventures.shibbeeofficialmovies.cipher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.security.Provider;
+import java.security.Security;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+class SomzFileCipherKeyCacheTest {
+    private static final byte[] firstKey = "0123456789abcdef0123456789abcdef".getBytes();
+    private static final byte[] secondKey = "x123456789abcdef0123456789abcdef".getBytes();
+
+    @Test
+    void keepsHandlesOfAlternatingKeys() {
+        SomzFileCipherKey first = SomzFileAesCtr.getKey(firstKey);
+        SomzFileCipherKey second = SomzFileAesCtr.getKey(secondKey);
+        assertNotSame(first, second);
+        assertSame(first, SomzFileAesCtr.getKey(firstKey.clone()));
+        assertSame(second, SomzFileAesCtr.getKey(secondKey));
+        assertSame(SomzFileChaCha20.getKey(firstKey), SomzFileChaCha20.getKey(firstKey));
+        assertSame(SomzFileChaCha20.getCounterKey(firstKey), SomzFileChaCha20.getCounterKey(firstKey));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedKeys() {
+        AtomicInteger creations = new AtomicInteger();
+        SomzFileCipherKeyCache cache = new SomzFileCipherKeyCache(2, key -> {
+            creations.incrementAndGet();
+            return SomzFileCipherKey.aesCtr(key);
+        }, () -> SomzFileProviders.getProvider(SomzFileCipherKey.AES_CTR));
+        byte[] thirdKey = "y123456789abcdef0123456789abcdef".getBytes();
+        cache.get(firstKey);
+        cache.get(secondKey);
+        cache.get(firstKey); // The second key is now the least recently used
+        cache.get(thirdKey);
+        assertEquals(2, cache.size());
+        assertEquals(3, creations.get());
+
+        cache.get(firstKey);
+        assertEquals(3, creations.get());
+        cache.get(secondKey);
+        assertEquals(4, creations.get());
+    }
+
+    @Test
+    void replacesHandlesOfAnotherProvider() {
+        AtomicReference<Provider> provider = new AtomicReference<>();
+        SomzFileCipherKeyCache cache = new SomzFileCipherKeyCache(2,
+                key -> new SomzFileCipherKey(key, "AES", SomzFileCipherKey.AES_CTR, provider.get()), provider::get);
+        SomzFileCipherKey handle = cache.get(firstKey);
+        assertSame(handle, cache.get(firstKey));
+
+        provider.set(Security.getProvider(SomzFileProviders.SUN_JCE));
+        SomzFileCipherKey replaced = cache.get(firstKey);
+        assertNotSame(handle, replaced);
+        assertSame(provider.get(), replaced.getProvider());
+    }
+}
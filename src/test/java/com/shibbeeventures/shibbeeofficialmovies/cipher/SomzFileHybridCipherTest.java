@@ -0,0 +1,229 @@
+package com.shibbeeventures.shibbeeofficialmovies.cipher;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks every file mode against a reference of the original file format, in
+ * which each 1MB chunk is XORed with the key byte after its start offset.
+ */
+class SomzFileHybridCipherTest {
+    // 33 bytes, which does not divide 1MB, so every chunk has another key byte
+    private static final String encKey = "0123456789abcdef0123456789abcdefX";
+    private static final int sizeOfChunk = 1048576;
+    private static final int sizeOfPayload = 2 * 16 * sizeOfChunk + 12345; // Three 16MB ranges, the last one partial
+    private static byte[] plaintext;
+    private static byte[] ciphertext;
+    @TempDir
+    Path directory;
+    private Path inputFile;
+    private Path encryptedFile;
+    private Path outputFile;
+
+    @BeforeAll
+    static void setUpPayload() {
+        plaintext = new byte[sizeOfPayload];
+        new Random(2).nextBytes(plaintext);
+        ciphertext = encryptReference(plaintext);
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        inputFile = Files.write(directory.resolve("input"), plaintext);
+        encryptedFile = directory.resolve("encrypted");
+        outputFile = directory.resolve("output");
+    }
+
+    @Test
+    void encryptsInMemoryWithOneKeyByte() {
+        SomzFileHybridCipher cipher = new SomzFileHybridCipher(encKey);
+        byte[] data = new byte[3 * sizeOfChunk];
+        byte[] encrypted = cipher.encrypt(data, (SomzFileProgressListener) null);
+        for (byte value : encrypted) {
+            assertEquals(encKey.getBytes()[1], value);
+        }
+        assertArrayEquals(data, cipher.decrypt(encrypted, (SomzFileProgressListener) null));
+    }
+
+    @Test
+    void streamsFiles() throws IOException {
+        assertRoundTrip(new SomzFileHybridCipher(encKey));
+    }
+
+    @Test
+    void mapsFiles() throws IOException {
+        SomzFileHybridCipher cipher = new SomzFileHybridCipher(encKey);
+        cipher.setMemoryMapped(true);
+        assertRoundTrip(cipher);
+    }
+
+    @Test
+    void splitsFilesIntoParallelRanges() throws IOException {
+        SomzFileHybridCipher cipher = new SomzFileHybridCipher(encKey);
+        cipher.setParallel(true);
+        assertRoundTrip(cipher);
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            cipher.setExecutor(executor);
+            assertRoundTrip(cipher);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void pipelinesFiles() throws IOException {
+        for (int depth : new int[] { 2, 4 }) {
+            SomzFileHybridCipher cipher = new SomzFileHybridCipher(encKey);
+            cipher.setPipelineDepth(depth);
+            assertRoundTrip(cipher);
+        }
+    }
+
+    @Test
+    void digestsPlaintext() throws IOException {
+        for (boolean isMemoryMapped : new boolean[] { false, true }) {
+            SomzFileHybridCipher cipher = new SomzFileHybridCipher(encKey);
+            cipher.setDigests(EnumSet.allOf(SomzFileDigest.Algorithm.class));
+            cipher.setParallel(true); // Ignored while digests are on
+            cipher.setMemoryMapped(isMemoryMapped);
+            cipher.encryptFile(inputFile.toString(), encryptedFile.toString(), (SomzFileProgressListener) null);
+            assertArrayEquals(ciphertext, Files.readAllBytes(encryptedFile));
+            assertDigests(cipher.getDigest());
+            cipher.decryptFile(encryptedFile.toString(), outputFile.toString(), (SomzFileProgressListener) null);
+            assertDigests(cipher.getDigest());
+        }
+    }
+
+    @Test
+    void resumesInterruptedFiles() throws IOException {
+        byte[] data = writeResumableInput();
+        SomzFileHybridCipher cipher = newResumableCipher();
+        encryptInterrupted(cipher);
+
+        List<Long> progress = new ArrayList<>();
+        cipher.encryptFile(inputFile.toString(), encryptedFile.toString(),
+                (bytesDone, bytesTotal, bytesPerSecond) -> progress.add(bytesDone));
+        assertEquals(SomzFileCheckpoint.sizeOfCheckpointStep, progress.get(0));
+        assertArrayEquals(encryptReference(data), Files.readAllBytes(encryptedFile));
+        assertFalse(Files.exists(sidecar()));
+    }
+
+    @Test
+    void restartsStaleCheckpoints() throws IOException {
+        byte[] data = writeResumableInput();
+        SomzFileHybridCipher cipher = newResumableCipher();
+        encryptInterrupted(cipher);
+        FileTime modified = Files.getLastModifiedTime(inputFile);
+        Files.setLastModifiedTime(inputFile, FileTime.fromMillis(modified.toMillis() + 10000));
+
+        List<Long> progress = new ArrayList<>();
+        cipher.encryptFile(inputFile.toString(), encryptedFile.toString(),
+                (bytesDone, bytesTotal, bytesPerSecond) -> progress.add(bytesDone));
+        assertEquals(0, progress.get(0));
+        assertArrayEquals(encryptReference(data), Files.readAllBytes(encryptedFile));
+
+        encryptInterrupted(cipher);
+        data = Arrays.copyOf(data, data.length - sizeOfChunk);
+        Files.write(inputFile, data);
+        Files.setLastModifiedTime(inputFile, modified);
+
+        progress.clear();
+        cipher.encryptFile(inputFile.toString(), encryptedFile.toString(),
+                (bytesDone, bytesTotal, bytesPerSecond) -> progress.add(bytesDone));
+        assertEquals(0, progress.get(0));
+        assertArrayEquals(encryptReference(data), Files.readAllBytes(encryptedFile));
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    /**
+     * Writes an input that spans more than one checkpoint step.
+     */
+    private byte[] writeResumableInput() throws IOException {
+        byte[] data = new byte[(int) SomzFileCheckpoint.sizeOfCheckpointStep + 3 * sizeOfChunk + 123];
+        new Random(4).nextBytes(data);
+        Files.write(inputFile, data);
+        return data;
+    }
+
+    private static SomzFileHybridCipher newResumableCipher() {
+        SomzFileHybridCipher cipher = new SomzFileHybridCipher(encKey);
+        cipher.setResumable(true);
+        cipher.setProgressCoalescing(0, 0); // Report every chunk
+        return cipher;
+    }
+
+    /**
+     * Aborts an encryption through its progress listener past the first
+     * checkpoint, leaving a partial output and its sidecar behind.
+     */
+    private void encryptInterrupted(SomzFileHybridCipher cipher) {
+        SomzFileProgressListener listener = (bytesDone, bytesTotal, bytesPerSecond) -> {
+            if (bytesDone > SomzFileCheckpoint.sizeOfCheckpointStep + sizeOfChunk) {
+                throw new IllegalStateException("Interrupted.");
+            }
+        };
+        assertThrows(IllegalStateException.class,
+                () -> cipher.encryptFile(inputFile.toString(), encryptedFile.toString(), listener));
+        assertTrue(Files.exists(sidecar()));
+    }
+
+    private Path sidecar() {
+        return encryptedFile.resolveSibling(encryptedFile.getFileName() + SomzFileCheckpoint.suffix);
+    }
+
+    private void assertRoundTrip(SomzFileHybridCipher cipher) throws IOException {
+        cipher.encryptFile(inputFile.toString(), encryptedFile.toString(), (SomzFileProgressListener) null);
+        assertArrayEquals(ciphertext, Files.readAllBytes(encryptedFile));
+        cipher.decryptFile(encryptedFile.toString(), outputFile.toString(), (SomzFileProgressListener) null);
+        assertArrayEquals(plaintext, Files.readAllBytes(outputFile));
+    }
+
+    private static void assertDigests(SomzFileDigest digest) throws IOException {
+        try {
+            for (SomzFileDigest.Algorithm algorithm : SomzFileDigest.Algorithm.values()) {
+                assertArrayEquals(MessageDigest.getInstance(algorithm.getName()).digest(plaintext),
+                        digest.getDigest(algorithm));
+            }
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IOException(exception);
+        }
+    }
+
+    /**
+     * Encrypts {@code data} the way the original file loop did, byte by byte.
+     */
+    static byte[] encryptReference(byte[] data) {
+        byte[] key = encKey.getBytes();
+        byte[] output = new byte[data.length];
+        for (int i = 0; i < data.length; i++) {
+            long chunkStart = (long) i / sizeOfChunk * sizeOfChunk;
+            output[i] = (byte) (data[i] ^ key[(int) ((chunkStart + 1) % key.length)]);
+        }
+        return output;
+    }
+}
@@ -0,0 +1,19 @@
+package com.shibbeeventures.shibbeeofficialmovies.cipher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class SomzFileProgressListenerTest {
+
+    @Test
+    void formatsPercentages() {
+        assertEquals(String.format("%.2f", 42.5), SomzFileProgressListener.toPercentage(425, 1000));
+        assertEquals(String.format("%.2f", 100.0), SomzFileProgressListener.toPercentage(1000, 1000));
+    }
+
+    @Test
+    void reportsEmptyOperationsAsComplete() {
+        assertEquals(String.format("%.2f", 100.0), SomzFileProgressListener.toPercentage(0, 0));
+    }
+}
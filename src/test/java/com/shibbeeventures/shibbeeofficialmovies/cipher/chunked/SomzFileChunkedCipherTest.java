@@ -0,0 +1,159 @@
+package com.shibbeeventures.shibbeeofficialmovies.cipher.chunked;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileProgressListener;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.header.SomzFileHeaderCipher;
+
+class SomzFileChunkedCipherTest {
+    private static final String encKey = "0123456789abcdef0123456789abcdef";
+    private static final int sizeOfChunk = SomzFileChunkedHeader.minSizeOfChunk;
+    private static final int sizeOfPayload = 3 * sizeOfChunk + 123; // 4 chunks, the last one partial
+    @TempDir
+    Path directory;
+    private byte[] plaintext;
+    private Path inputFile;
+    private Path containerFile;
+    private Path outputFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        plaintext = new byte[sizeOfPayload];
+        new Random(1).nextBytes(plaintext);
+        inputFile = Files.write(directory.resolve("input"), plaintext);
+        containerFile = directory.resolve("container");
+        outputFile = directory.resolve("output");
+        new SomzFileChunkedCipher(encKey, sizeOfChunk).encryptFile(inputFile.toString(), containerFile.toString(),
+                null);
+    }
+
+    @Test
+    void decryptsContainers() throws IOException {
+        SomzFileChunkedCipher cipher = new SomzFileChunkedCipher(encKey, sizeOfChunk);
+        cipher.decryptFile(containerFile.toString(), outputFile.toString(), null);
+        assertArrayEquals(plaintext, Files.readAllBytes(outputFile));
+
+        cipher.setExecutor(ForkJoinPool.commonPool());
+        cipher.decryptFile(containerFile.toString(), outputFile.toString(), null);
+        assertArrayEquals(plaintext, Files.readAllBytes(outputFile));
+
+        try (SeekableByteChannel channel = SomzFileChunkedCipher.openChannel(containerFile, encKey, null)) {
+            assertEquals(sizeOfPayload, channel.size());
+            assertArrayEquals(Arrays.copyOfRange(plaintext, sizeOfChunk - 10, sizeOfChunk + 10),
+                    read(channel, sizeOfChunk - 10, 20));
+        }
+    }
+
+    @Test
+    void rejectsFlippedBits() throws IOException {
+        byte[] container = Files.readAllBytes(containerFile);
+        container[chunkOffset(1) + 5] ^= 1;
+        Files.write(containerFile, container);
+
+        assertThrows(IOException.class, () -> decrypt(encKey));
+        try (SeekableByteChannel channel = SomzFileChunkedCipher.openChannel(containerFile, encKey, null)) {
+            assertArrayEquals(Arrays.copyOf(plaintext, 100), read(channel, 0, 100));
+            assertThrows(IOException.class, () -> read(channel, sizeOfChunk, 100));
+        }
+    }
+
+    @Test
+    void rejectsFlippedHeaderBits() throws IOException {
+        byte[] container = Files.readAllBytes(containerFile);
+        container[16 + 7] ^= 1; // Plaintext length
+        Files.write(containerFile, container);
+
+        assertThrows(IOException.class, () -> decrypt(encKey));
+    }
+
+    @Test
+    void rejectsReorderedChunks() throws IOException {
+        byte[] container = Files.readAllBytes(containerFile);
+        swap(container, chunkOffset(0), chunkOffset(1), sizeOfChunk);
+        swap(container, indexOffset(0), indexOffset(1), SomzFileChunkedHeader.sizeOfIndexEntry);
+        Files.write(containerFile, container);
+
+        assertThrows(IOException.class, () -> decrypt(encKey));
+    }
+
+    @Test
+    void rejectsTruncatedContainers() throws IOException {
+        byte[] container = Files.readAllBytes(containerFile);
+        Files.write(containerFile, Arrays.copyOf(container, container.length - 1));
+        assertThrows(IOException.class, () -> decrypt(encKey));
+
+        Files.write(containerFile, Arrays.copyOf(container, SomzFileChunkedHeader.sizeOfHeader));
+        assertThrows(IOException.class, () -> decrypt(encKey));
+        assertThrows(IOException.class, () -> SomzFileChunkedCipher.openChannel(containerFile, encKey, null));
+    }
+
+    @Test
+    void rejectsWrongKeys() throws IOException {
+        assertThrows(IOException.class, () -> decrypt("x123456789abcdef0123456789abcdef"));
+        assertThrows(IOException.class,
+                () -> SomzFileChunkedCipher.openChannel(containerFile, "x123456789abcdef0123456789abcdef", null));
+    }
+
+    @Test
+    void decryptsVersion1Files() throws IOException {
+        Path version1File = directory.resolve("version1");
+        SomzFileHeaderCipher headerCipher = new SomzFileHeaderCipher(encKey);
+        headerCipher.openFiles(inputFile.toString(), version1File.toString());
+        headerCipher.setProcess(true);
+        headerCipher.encryptInput((SomzFileProgressListener) null);
+        headerCipher.close();
+        assertFalse(SomzFileChunkedCipher.isChunked(version1File.toString()));
+
+        new SomzFileChunkedCipher(encKey).decryptFile(version1File.toString(), outputFile.toString(), null);
+        assertArrayEquals(plaintext, Files.readAllBytes(outputFile));
+        try (SeekableByteChannel channel = SomzFileChunkedCipher.openChannel(version1File, encKey, null)) {
+            assertEquals(sizeOfPayload, channel.size());
+            assertArrayEquals(Arrays.copyOfRange(plaintext, 5000, 6000), read(channel, 5000, 1000));
+        }
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    private void decrypt(String key) throws IOException {
+        new SomzFileChunkedCipher(key, sizeOfChunk).decryptFile(containerFile.toString(), outputFile.toString(), null);
+    }
+
+    private static byte[] read(SeekableByteChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        channel.position(position);
+        while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+            // Read until the buffer is full or the end is reached
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    private static int chunkOffset(int index) {
+        return SomzFileChunkedHeader.sizeOfHeader + index * sizeOfChunk;
+    }
+
+    private static int indexOffset(int index) {
+        return SomzFileChunkedHeader.sizeOfHeader + sizeOfPayload + index * SomzFileChunkedHeader.sizeOfIndexEntry;
+    }
+
+    private static void swap(byte[] data, int first, int second, int length) {
+        byte[] copy = Arrays.copyOfRange(data, first, first + length);
+        System.arraycopy(data, second, data, first, length);
+        System.arraycopy(copy, 0, data, second, length);
+    }
+}
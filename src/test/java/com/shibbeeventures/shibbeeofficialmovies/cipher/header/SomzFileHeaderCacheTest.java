@@ -0,0 +1,93 @@
+package com.shibbeeventures.shibbeeofficialmovies.cipher.header;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SomzFileHeaderCacheTest {
+    private static final String encKey = "0123456789abcdef0123456789abcdef";
+    private static final String otherKey = "x123456789abcdef0123456789abcdef";
+    @TempDir
+    Path directory;
+    private Path file;
+    private SomzFileHeaderCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = writeFile("file");
+        cache = new SomzFileHeaderCache(2);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void servesCachedHeaders() throws IOException {
+        SomzFileHeader header = cache.get(file, encKey.getBytes());
+        assertSame(header, cache.get(file, encKey.getBytes()));
+        assertEquals(header.getTime(), SomzFileHeaderCipherBuffer.decryptHeader(Files.readAllBytes(file),
+                encKey.getBytes()).getTime());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void keysEntriesByFileVersionAndKey() throws IOException {
+        load(file, encKey);
+        load(file, otherKey);
+        assertEquals(2, loads.get());
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 10000));
+        load(file, encKey);
+        assertEquals(3, loads.get());
+
+        load(file, encKey);
+        assertEquals(3, loads.get());
+        cache.invalidate(file);
+        assertEquals(0, cache.size());
+        load(file, encKey);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntries() throws IOException {
+        Path second = writeFile("second");
+        Path third = writeFile("third");
+        load(file, encKey);
+        load(second, encKey);
+        load(file, encKey); // The second file is now the least recently used
+        load(third, encKey);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+
+        load(file, encKey);
+        assertEquals(3, loads.get());
+        load(second, encKey);
+        assertEquals(4, loads.get());
+
+        cache.setCapacity(1);
+        assertEquals(1, cache.size());
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    private Path writeFile(String name) throws IOException {
+        SomzFileHeaderKey key = new SomzFileHeaderKey(encKey);
+        return Files.write(directory.resolve(name), key.encryptHeader(key.newSession().getHeader()));
+    }
+
+    private void load(Path inputFile, String key) throws IOException {
+        cache.get(inputFile, key.getBytes(), () -> {
+            loads.incrementAndGet();
+            return SomzFileHeaderCipherBuffer.decryptHeader(Files.readAllBytes(inputFile), encKey.getBytes());
+        });
+    }
+}
@@ -0,0 +1,360 @@
+package com.shibbeeventures.shibbeeofficialmovies.cipher.header;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileCheckpoint;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileDigest;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.SomzFileProgressListener;
+
+/**
+ * Checks every file mode against the in-memory cipher, keyed by the header the
+ * mode wrote.
+ */
+class SomzFileHeaderCipherTest {
+    private static final String encKey = "0123456789abcdef0123456789abcdef";
+    private static final int sizeOfPayload = 5 * 1048576 + 333; // Not a multiple of any buffer size
+    private static byte[] plaintext;
+    @TempDir
+    Path directory;
+    private Path inputFile;
+    private Path encryptedFile;
+    private Path outputFile;
+
+    @BeforeAll
+    static void setUpPayload() {
+        plaintext = new byte[sizeOfPayload];
+        new Random(3).nextBytes(plaintext);
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        inputFile = Files.write(directory.resolve("input"), plaintext);
+        encryptedFile = directory.resolve("encrypted");
+        outputFile = directory.resolve("output");
+    }
+
+    @Test
+    void streamsFiles() throws IOException {
+        SomzFileHeaderCipher cipher = new SomzFileHeaderCipher(encKey);
+        encrypt(cipher);
+        SomzFileHeader header = assertDataMatches(Files.readAllBytes(encryptedFile), plaintext);
+        assertEquals(SomzFileHeader.VERSION_JSON, header.getVersion());
+        decrypt(cipher);
+        assertArrayEquals(plaintext, Files.readAllBytes(outputFile));
+    }
+
+    @Test
+    void mapsFiles() throws IOException {
+        SomzFileHeaderCipher cipher = new SomzFileHeaderCipher(encKey);
+        cipher.setMemoryMapped(true);
+        assertRoundTrip(cipher);
+    }
+
+    @Test
+    void pipelinesFiles() throws IOException {
+        for (int depth : new int[] { 2, 4 }) {
+            SomzFileHeaderCipher cipher = new SomzFileHeaderCipher(encKey);
+            cipher.setPipelineDepth(depth);
+            assertRoundTrip(cipher);
+        }
+    }
+
+    @Test
+    void recordsDigests() throws IOException {
+        SomzFileHeaderCipher cipher = newDigestCipher();
+        encrypt(cipher);
+        SomzFileHeader header = assertDataMatches(Files.readAllBytes(encryptedFile), plaintext);
+        assertEquals(SomzFileHeader.VERSION_BINARY, header.getVersion());
+        assertDigests(header::getDigest);
+        assertDigests(cipher.getDigest()::getDigest);
+
+        decrypt(cipher);
+        assertArrayEquals(plaintext, Files.readAllBytes(outputFile));
+        assertDigests(cipher.getDigest()::getDigest);
+    }
+
+    @Test
+    void rejectsTamperedData() throws IOException {
+        SomzFileHeaderCipher cipher = newDigestCipher();
+        encrypt(cipher);
+        byte[] file = Files.readAllBytes(encryptedFile);
+        file[SomzFileHeaderCipherBuffer.sizeOfHeader + 1234] ^= 1;
+        Files.write(encryptedFile, file);
+
+        assertThrows(IOException.class, () -> decrypt(cipher));
+        cipher.setVerifyDigests(false);
+        decrypt(cipher);
+    }
+
+    @Test
+    void rejectsDigestsInJsonHeaders() throws IOException {
+        SomzFileHeaderCipher cipher = new SomzFileHeaderCipher(encKey);
+        cipher.setDigests(EnumSet.of(SomzFileDigest.Algorithm.SHA256));
+        assertThrows(IOException.class, () -> encrypt(cipher));
+    }
+
+    @Test
+    void seeksThroughChannels() throws IOException {
+        encrypt(new SomzFileHeaderCipher(encKey));
+        try (SeekableByteChannel channel = new SomzFileHeaderKey(encKey).openReader(encryptedFile)) {
+            assertEquals(sizeOfPayload, channel.size());
+            assertArrayEquals(Arrays.copyOfRange(plaintext, 3000000, 3001000), read(channel, 3000000, 1000));
+            assertEquals(3001000, channel.position());
+            assertArrayEquals(Arrays.copyOfRange(plaintext, 10, 20), read(channel, 10, 10));
+            assertArrayEquals(Arrays.copyOfRange(plaintext, sizeOfPayload - 5, sizeOfPayload),
+                    read(channel, sizeOfPayload - 5, 100));
+            channel.position(sizeOfPayload + 1);
+            assertEquals(-1, channel.read(ByteBuffer.allocate(1)));
+            assertThrows(IllegalArgumentException.class, () -> channel.position(-1));
+            assertThrows(NonWritableChannelException.class, () -> channel.write(ByteBuffer.allocate(1)));
+        }
+    }
+
+    @Test
+    void closedChannelsFail() throws IOException {
+        encrypt(new SomzFileHeaderCipher(encKey));
+        SeekableByteChannel channel = new SomzFileHeaderKey(encKey).openReader(encryptedFile);
+        channel.close();
+        assertFalse(channel.isOpen());
+        assertThrows(ClosedChannelException.class, channel::size);
+        assertThrows(ClosedChannelException.class, channel::position);
+        assertThrows(ClosedChannelException.class, () -> channel.position(0));
+        assertThrows(ClosedChannelException.class, () -> channel.read(ByteBuffer.allocate(1)));
+    }
+
+    @Test
+    void streamsThroughWrappers() throws IOException {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        try (SomzFileHeaderCipherOutputStream out = new SomzFileHeaderCipherOutputStream(file, encKey)) {
+            out.write(plaintext, 0, 1000);
+            out.write(plaintext[1000]);
+            out.write(plaintext, 1001, plaintext.length - 1001);
+        }
+        assertDataMatches(file.toByteArray(), plaintext);
+
+        try (SomzFileHeaderCipherInputStream in = new SomzFileHeaderCipherInputStream(
+                new ByteArrayInputStream(file.toByteArray()), encKey)) {
+            assertEquals(0, in.read(new byte[1], 0, 0));
+            assertEquals(plaintext[0] & 0xFF, in.read());
+            assertArrayEquals(Arrays.copyOfRange(plaintext, 1, plaintext.length), in.readAllBytes());
+            assertEquals(-1, in.read());
+            assertEquals(0, in.read(new byte[1], 0, 0));
+        }
+    }
+
+    @Test
+    void streamsEmptyFiles() throws IOException {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        new SomzFileHeaderCipherOutputStream(file, encKey).close();
+        assertEquals(SomzFileHeaderCipherBuffer.sizeOfHeader, file.size());
+        try (SomzFileHeaderCipherInputStream in = new SomzFileHeaderCipherInputStream(
+                new ByteArrayInputStream(file.toByteArray()), encKey)) {
+            assertEquals(-1, in.read());
+        }
+
+        // An empty stream is not a file, it lacks the header
+        try (SomzFileHeaderCipherInputStream in = new SomzFileHeaderCipherInputStream(
+                new ByteArrayInputStream(new byte[0]), encKey)) {
+            assertThrows(EOFException.class, in::read);
+        }
+    }
+
+    @Test
+    void rejectsFilesShorterThanTheHeader() throws IOException {
+        Files.write(encryptedFile, new byte[SomzFileHeaderCipherBuffer.sizeOfHeader - 1]);
+        assertThrows(EOFException.class, () -> new SomzFileHeaderKey(encKey).openReader(encryptedFile).close());
+        Files.write(encryptedFile, new byte[0]);
+        assertThrows(EOFException.class, () -> new SomzFileHeaderKey(encKey).openReader(encryptedFile).close());
+    }
+
+    @Test
+    void resumesInterruptedFiles() throws IOException {
+        byte[] data = writeResumableInput();
+        encryptInterrupted();
+        SomzFileHeader interruptedHeader = SomzFileHeaderCipherBuffer.decryptHeader(
+                Arrays.copyOf(Files.readAllBytes(encryptedFile), SomzFileHeaderCipherBuffer.sizeOfHeader),
+                encKey.getBytes());
+
+        assertEquals(SomzFileCheckpoint.sizeOfCheckpointStep, encryptResumable());
+        SomzFileHeader header = assertDataMatches(Files.readAllBytes(encryptedFile), data);
+        assertEquals(interruptedHeader.getTime(), header.getTime());
+        assertFalse(Files.exists(sidecar()));
+    }
+
+    @Test
+    void restartsStaleCheckpoints() throws IOException {
+        byte[] data = writeResumableInput();
+        encryptInterrupted();
+        FileTime modified = Files.getLastModifiedTime(inputFile);
+        Files.setLastModifiedTime(inputFile, FileTime.fromMillis(modified.toMillis() + 10000));
+        assertEquals(0, encryptResumable());
+        assertDataMatches(Files.readAllBytes(encryptedFile), data);
+
+        encryptInterrupted();
+        data = Arrays.copyOf(data, data.length - 1048576);
+        Files.write(inputFile, data);
+        Files.setLastModifiedTime(inputFile, modified);
+        assertEquals(0, encryptResumable());
+        assertDataMatches(Files.readAllBytes(encryptedFile), data);
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    /**
+     * Writes an input that spans more than one checkpoint step.
+     */
+    private byte[] writeResumableInput() throws IOException {
+        byte[] data = new byte[(int) SomzFileCheckpoint.sizeOfCheckpointStep + 3 * 1048576 + 123];
+        new Random(5).nextBytes(data);
+        Files.write(inputFile, data);
+        return data;
+    }
+
+    /**
+     * Aborts a resumable encryption through its progress listener past the first
+     * checkpoint, leaving a partial output and its sidecar behind.
+     */
+    private void encryptInterrupted() throws IOException {
+        SomzFileHeaderCipher cipher = newResumableCipher();
+        SomzFileProgressListener listener = (bytesDone, bytesTotal, bytesPerSecond) -> {
+            if (bytesDone > SomzFileCheckpoint.sizeOfCheckpointStep + 1048576) {
+                throw new IllegalStateException("Interrupted.");
+            }
+        };
+        try {
+            cipher.openFiles(inputFile.toString(), encryptedFile.toString());
+            cipher.setProcess(true);
+            assertThrows(IllegalStateException.class, () -> cipher.encryptInput(listener));
+        } finally {
+            cipher.close();
+        }
+        assertTrue(Files.exists(sidecar()));
+    }
+
+    /**
+     * Runs a resumable encryption to the end and returns the first progress it
+     * reported, i.e. the offset it continued from.
+     */
+    private long encryptResumable() throws IOException {
+        SomzFileHeaderCipher cipher = newResumableCipher();
+        List<Long> progress = new ArrayList<>();
+        try {
+            cipher.openFiles(inputFile.toString(), encryptedFile.toString());
+            cipher.setProcess(true);
+            cipher.encryptInput((bytesDone, bytesTotal, bytesPerSecond) -> progress.add(bytesDone));
+        } finally {
+            cipher.close();
+        }
+        return progress.get(0);
+    }
+
+    private static SomzFileHeaderCipher newResumableCipher() throws IOException {
+        SomzFileHeaderCipher cipher = new SomzFileHeaderCipher(encKey);
+        cipher.setResumable(true);
+        cipher.setProgressCoalescing(0, 0); // Report every chunk
+        return cipher;
+    }
+
+    private static SomzFileHeaderCipher newDigestCipher() throws IOException {
+        SomzFileHeaderCipher cipher = new SomzFileHeaderCipher(encKey);
+        cipher.setHeaderVersion(SomzFileHeader.VERSION_BINARY);
+        cipher.setDigests(EnumSet.allOf(SomzFileDigest.Algorithm.class));
+        return cipher;
+    }
+
+    private static void assertDigests(Function<SomzFileDigest.Algorithm, byte[]> digests) throws IOException {
+        try {
+            for (SomzFileDigest.Algorithm algorithm : SomzFileDigest.Algorithm.values()) {
+                assertArrayEquals(MessageDigest.getInstance(algorithm.getName()).digest(plaintext),
+                        digests.apply(algorithm));
+            }
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IOException(exception);
+        }
+    }
+
+    private Path sidecar() {
+        return encryptedFile.resolveSibling(encryptedFile.getFileName() + SomzFileCheckpoint.suffix);
+    }
+
+    private void assertRoundTrip(SomzFileHeaderCipher cipher) throws IOException {
+        encrypt(cipher);
+        assertDataMatches(Files.readAllBytes(encryptedFile), plaintext);
+        decrypt(cipher);
+        assertArrayEquals(plaintext, Files.readAllBytes(outputFile));
+    }
+
+    private void encrypt(SomzFileHeaderCipher cipher) throws IOException {
+        try {
+            cipher.openFiles(inputFile.toString(), encryptedFile.toString());
+            cipher.setProcess(true);
+            cipher.encryptInput((SomzFileProgressListener) null);
+        } finally {
+            cipher.close();
+        }
+    }
+
+    private void decrypt(SomzFileHeaderCipher cipher) throws IOException {
+        Files.deleteIfExists(outputFile);
+        try {
+            cipher.openFiles(encryptedFile.toString(), outputFile.toString());
+            cipher.setProcess(false);
+            cipher.readHeaderFromInput();
+            cipher.decryptInput((SomzFileProgressListener) null);
+        } finally {
+            cipher.close();
+        }
+    }
+
+    private static byte[] read(SeekableByteChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        channel.position(position);
+        while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+            // Read until the buffer is full or the end is reached
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    /**
+     * Checks that the data after the header of {@code file} is what the in-memory
+     * cipher produces from {@code data} for the header values.
+     */
+    private static SomzFileHeader assertDataMatches(byte[] file, byte[] data) throws IOException {
+        int sizeOfHeader = SomzFileHeaderCipherBuffer.sizeOfHeader;
+        SomzFileHeader header = SomzFileHeaderCipherBuffer.decryptHeader(Arrays.copyOf(file, sizeOfHeader),
+                encKey.getBytes());
+        byte[] expected = SomzFileHeaderCipherBuffer.encrypt(data, header.getPosition(), header.getKeysize(),
+                (SomzFileProgressListener) null);
+        assertArrayEquals(expected, Arrays.copyOfRange(file, sizeOfHeader, file.length));
+        return header;
+    }
+}
@@ -0,0 +1,117 @@
+package com.shibbeeventures.shibbeeofficialmovies.server;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.shibbeeventures.shibbeeofficialmovies.cipher.header.SomzFileHeaderCache;
+import com.shibbeeventures.shibbeeofficialmovies.cipher.header.SomzFileHeaderCipherOutputStream;
+
+class SomzFileRangeServerTest {
+    private static final String encKey = "0123456789abcdef0123456789abcdef";
+    private static final int sizeOfPayload = 200000;
+    @TempDir
+    Path directory;
+    private byte[] plaintext;
+    private Path served;
+    private SomzFileRangeServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        plaintext = new byte[sizeOfPayload];
+        new Random(6).nextBytes(plaintext);
+        served = Files.createDirectory(directory.resolve("served"));
+        try (OutputStream out = new SomzFileHeaderCipherOutputStream(
+                Files.newOutputStream(served.resolve("movie.mp4")), encKey)) {
+            out.write(plaintext);
+        }
+        Files.copy(served.resolve("movie.mp4"), directory.resolve("secret.mp4"));
+        server = new SomzFileRangeServer(served.toString(), encKey, new SomzFileHeaderCache(16));
+        server.setThreads(2);
+        server.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void servesWholeFiles() throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = get("/movie.mp4", null);
+        assertEquals(200, response.statusCode());
+        assertEquals("bytes", response.headers().firstValue("Accept-Ranges").orElse(null));
+        assertEquals("video/mp4", response.headers().firstValue("Content-Type").orElse(null));
+        assertArrayEquals(plaintext, response.body());
+    }
+
+    @Test
+    void servesPartialContent() throws IOException, InterruptedException {
+        assertPartial("bytes=100-199", 100, 199);
+        assertPartial("bytes=150000-", 150000, sizeOfPayload - 1);
+        assertPartial("bytes=-10", sizeOfPayload - 10, sizeOfPayload - 1);
+        assertPartial("bytes=199990-300000", 199990, sizeOfPayload - 1);
+    }
+
+    @Test
+    void rejectsUnsatisfiableRanges() throws IOException, InterruptedException {
+        for (String range : new String[] { "bytes=" + sizeOfPayload + "-", "bytes=-0" }) {
+            HttpResponse<byte[]> response = get("/movie.mp4", range);
+            assertEquals(416, response.statusCode());
+            assertEquals("bytes */" + sizeOfPayload, response.headers().firstValue("Content-Range").orElse(null));
+        }
+    }
+
+    @Test
+    void servesWholeFilesForMultipleRanges() throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = get("/movie.mp4", "bytes=0-9,20-29");
+        assertEquals(200, response.statusCode());
+        assertArrayEquals(plaintext, response.body());
+    }
+
+    @Test
+    void rejectsUnknownFiles() throws IOException, InterruptedException {
+        Files.write(served.resolve("plain.txt"), new byte[300]);
+        assertEquals(404, get("/missing.mp4", null).statusCode());
+        assertEquals(404, get("/plain.txt", null).statusCode());
+        assertEquals(404, get("/../secret.mp4", null).statusCode());
+    }
+
+    // ===================== PRIVATE METHODS ===================== //
+
+    private void assertPartial(String range, int start, int end) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = get("/movie.mp4", range);
+        assertEquals(206, response.statusCode());
+        assertEquals("bytes " + start + "-" + end + "/" + sizeOfPayload,
+                response.headers().firstValue("Content-Range").orElse(null));
+        assertArrayEquals(Arrays.copyOfRange(plaintext, start, end + 1), response.body());
+    }
+
+    private HttpResponse<byte[]> get(String path, String range) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest
+                .newBuilder(URI.create("http://localhost:" + server.getPort() + path));
+        if (range != null) {
+            request.header("Range", range);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
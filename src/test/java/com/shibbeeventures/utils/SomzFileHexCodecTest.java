@@ -0,0 +1,71 @@
+package com.shibbeeventures.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class SomzFileHexCodecTest {
+
+    @Test
+    void roundTripsEveryByteValue() {
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        String lower = SomzFileHexCodec.encode(bytes, false);
+        String upper = SomzFileHexCodec.encode(bytes, true);
+        assertEquals(HexFormat.of().formatHex(bytes), lower);
+        assertEquals(HexFormat.of().withUpperCase().formatHex(bytes), upper);
+        assertArrayEquals(bytes, SomzFileHexCodec.decode(lower));
+        assertArrayEquals(bytes, SomzFileHexCodec.decode(upper));
+        assertArrayEquals(new byte[0], SomzFileHexCodec.decode(""));
+        assertEquals("", SomzFileHexCodec.encode(new byte[0], false));
+    }
+
+    @Test
+    void encodesIntoArraysAndAppendables() throws IOException {
+        byte[] bytes = new byte[1000]; // More than one append batch
+        new Random(7).nextBytes(bytes);
+        String expected = HexFormat.of().formatHex(bytes, 10, 990);
+
+        char[] out = new char[2000];
+        assertEquals(5 + 1960, SomzFileHexCodec.encode(bytes, 10, 980, out, 5, false));
+        assertEquals(expected, new String(out, 5, 1960));
+
+        StringBuilder builder = new StringBuilder();
+        SomzFileHexCodec.encode(bytes, 10, 980, builder, false);
+        assertEquals(expected, builder.toString());
+
+        byte[] decoded = new byte[990];
+        assertEquals(990, SomzFileHexCodec.decode("xx" + expected, 2, 1962, decoded, 10));
+        assertArrayEquals(Arrays.copyOfRange(bytes, 10, 990),
+                Arrays.copyOfRange(decoded, 10, 990));
+    }
+
+    @Test
+    void encodesPairs() {
+        assertEquals("0A FF 12", SomzFileHexCodec.encodePairs(new byte[] { 0x0A, (byte) 0xFF, 0x12 }, true));
+        assertEquals("0a", SomzFileHexCodec.encodePairs(new byte[] { 0x0A }, false));
+        assertEquals("", SomzFileHexCodec.encodePairs(new byte[0], false));
+    }
+
+    @Test
+    void rejectsInvalidInput() {
+        assertThrows(IllegalArgumentException.class, () -> SomzFileHexCodec.decode("abc"));
+        assertThrows(IllegalArgumentException.class, () -> SomzFileHexCodec.decode("0g"));
+        assertThrows(IllegalArgumentException.class, () -> SomzFileHexCodec.decode("g0"));
+        assertThrows(IllegalArgumentException.class, () -> SomzFileHexCodec.decode(" 0"));
+        assertThrows(IllegalArgumentException.class, () -> SomzFileHexCodec.decode("\u00e90"));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> SomzFileHexCodec.encode(new byte[4], 0, 4, new char[7], 0, false));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> SomzFileHexCodec.decode("0011", 0, 4, new byte[1], 0));
+    }
+}